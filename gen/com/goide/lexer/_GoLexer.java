@@ -5,7 +5,6 @@ package com.goide.lexer;
 import com.intellij.lexer.FlexLexer;
 import com.intellij.psi.tree.IElementType;
 import com.goide.GoTypes;
-import java.util.*;
 import static com.intellij.psi.TokenType.BAD_CHARACTER;
 import static com.goide.GoParserDefinition.*;
 
@@ -536,20 +535,6 @@ public class _GoLexer implements FlexLexer, GoTypes {
     this((java.io.Reader)null);
   }
 
-  private Stack<IElementType> gStringStack = new Stack<IElementType>();
-  private Stack<IElementType> blockStack = new Stack<IElementType>();
-
-  private int afterComment = YYINITIAL;
-  private int afterNls = YYINITIAL;
-  private int afterBrace = YYINITIAL;
-
-  private void clearStacks(){
-    gStringStack.clear();
-    blockStack.clear();
-  }
-
-  private Stack<IElementType> braceCount = new Stack<IElementType>();
-
 
 
   public _GoLexer(java.io.Reader in) {
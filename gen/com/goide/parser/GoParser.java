@@ -1949,13 +1949,24 @@ public class GoParser implements PsiParser {
     return r || p;
   }
 
-  // Block?
+  // (<<lazyBlock>> | Block)?
   private static boolean FunctionDeclaration_3(PsiBuilder b, int l) {
     if (!recursion_guard_(b, l, "FunctionDeclaration_3")) return false;
-    Block(b, l + 1);
+    FunctionDeclaration_3_0(b, l + 1);
     return true;
   }
 
+  // <<lazyBlock>> | Block
+  private static boolean FunctionDeclaration_3_0(PsiBuilder b, int l) {
+    if (!recursion_guard_(b, l, "FunctionDeclaration_3_0")) return false;
+    boolean r;
+    Marker m = enter_section_(b);
+    r = lazyBlock(b, l + 1);
+    if (!r) r = Block(b, l + 1);
+    exit_section_(b, m, null, r);
+    return r;
+  }
+
   /* ********************************************************** */
   // func Signature
   public static boolean FunctionType(PsiBuilder b, int l) {
@@ -2437,13 +2448,24 @@ public class GoParser implements PsiParser {
     return r || p;
   }
 
-  // Block?
+  // (<<lazyBlock>> | Block)?
   private static boolean MethodDeclaration_4(PsiBuilder b, int l) {
     if (!recursion_guard_(b, l, "MethodDeclaration_4")) return false;
-    Block(b, l + 1);
+    MethodDeclaration_4_0(b, l + 1);
     return true;
   }
 
+  // <<lazyBlock>> | Block
+  private static boolean MethodDeclaration_4_0(PsiBuilder b, int l) {
+    if (!recursion_guard_(b, l, "MethodDeclaration_4_0")) return false;
+    boolean r;
+    Marker m = enter_section_(b);
+    r = lazyBlock(b, l + 1);
+    if (!r) r = Block(b, l + 1);
+    exit_section_(b, m, null, r);
+    return r;
+  }
+
   /* ********************************************************** */
   // TypeName &(!'(') | identifier Signature
   public static boolean MethodSpec(PsiBuilder b, int l) {
@@ -19,7 +19,6 @@ package com.goide;
 import com.goide.highlighting.GoSyntaxHighlightingColors;
 import com.goide.psi.*;
 import com.goide.psi.impl.GoPsiImplUtil;
-import com.goide.psi.impl.GoReference;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.Annotator;
 import com.intellij.openapi.application.ApplicationManager;
@@ -27,19 +26,13 @@ import com.intellij.openapi.editor.colors.TextAttributesKey;
 import com.intellij.openapi.editor.markup.TextAttributes;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class GoAnnotator implements Annotator {
   @Override
   public void annotate(@NotNull PsiElement o, @NotNull AnnotationHolder holder) {
-    if (o instanceof GoImportSpec) {
-      if (((GoImportSpec)o).isDot()) {
-        o.putUserData(GoReference.IMPORT_USERS, ContainerUtil.<PsiElement>newArrayListWithCapacity(0));
-      }
-    }
-    else if (o instanceof GoLiteral) {
+    if (o instanceof GoLiteral) {
       if (((GoLiteral)o).getHex() != null || ((GoLiteral)o).getOct() != null) {
         setHighlighting(o, holder, GoSyntaxHighlightingColors.NUMBER, "hex_oct");
       }
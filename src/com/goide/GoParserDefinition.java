@@ -17,9 +17,11 @@
 package com.goide;
 
 import com.goide.lexer.GoLexer;
+import com.goide.parser.GoLazyBlockElementType;
 import com.goide.parser.GoParser;
 import com.goide.psi.GoFile;
 import com.goide.psi.GoTokenType;
+import com.goide.psi.impl.GoBlockImpl;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.ParserDefinition;
 import com.intellij.lang.PsiParser;
@@ -94,6 +96,7 @@ public class GoParserDefinition implements ParserDefinition {
   @NotNull
   @Override
   public PsiElement createElement(ASTNode node) {
+    if (node.getElementType() == GoLazyBlockElementType.INSTANCE) return new GoBlockImpl(node);
     return Factory.createElement(node);
   }
 
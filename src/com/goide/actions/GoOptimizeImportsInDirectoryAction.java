@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.actions;
+
+import com.goide.GoFileType;
+import com.goide.codeInsight.imports.GoImportOptimizer;
+import com.goide.psi.GoFile;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ContentIterator;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optimizes imports of all Go files in the selected directories or in the module.
+ * Files are analyzed in parallel under read actions in a background task; the changes are then applied on the EDT
+ * in batches, each batch in its own write action so the UI stays responsive, and all batches share one undo group.
+ */
+public class GoOptimizeImportsInDirectoryAction extends AnAction {
+  private static final String TITLE = "Optimize Go Imports";
+  private static final int BATCH_SIZE = 50;
+
+  @Override
+  public void update(@NotNull AnActionEvent e) {
+    e.getPresentation().setEnabledAndVisible(e.getProject() != null && !getRoots(e).isEmpty());
+  }
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    final Project project = e.getProject();
+    assert project != null;
+    final Collection<VirtualFile> roots = getRoots(e);
+    PsiDocumentManager.getInstance(project).commitAllDocuments();
+
+    ProgressManager.getInstance().run(new Task.Backgroundable(project, TITLE, true) {
+      private List<GoImportOptimizer.Changes> myChanges = Collections.emptyList();
+
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        indicator.setText("Collecting Go files");
+        List<VirtualFile> files = collectGoFiles(project, roots);
+        indicator.setText("Analyzing imports");
+        myChanges = collectChanges(project, files, indicator);
+      }
+
+      @Override
+      public void onSuccess() {
+        if (!myChanges.isEmpty()) apply(project, myChanges, 0, new Object());
+      }
+    });
+  }
+
+  @NotNull
+  private static Collection<VirtualFile> getRoots(@NotNull AnActionEvent e) {
+    VirtualFile[] files = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+    if (files != null && files.length > 0) {
+      for (VirtualFile file : files) {
+        if (!file.isDirectory() && file.getFileType() != GoFileType.INSTANCE) return Collections.emptyList();
+      }
+      return Arrays.asList(files);
+    }
+    Module module = e.getData(LangDataKeys.MODULE_CONTEXT);
+    return module != null ? Arrays.asList(ModuleRootManager.getInstance(module).getContentRoots()) : Collections.<VirtualFile>emptyList();
+  }
+
+  @NotNull
+  private static List<VirtualFile> collectGoFiles(@NotNull final Project project, @NotNull final Collection<VirtualFile> roots) {
+    return ApplicationManager.getApplication().runReadAction(new Computable<List<VirtualFile>>() {
+      @Override
+      public List<VirtualFile> compute() {
+        final List<VirtualFile> result = ContainerUtil.newArrayList();
+        final ProjectFileIndex index = ProjectRootManager.getInstance(project).getFileIndex();
+        for (VirtualFile root : roots) {
+          index.iterateContentUnderDirectory(root, new ContentIterator() {
+            @Override
+            public boolean processFile(VirtualFile file) {
+              if (!file.isDirectory() && file.getFileType() == GoFileType.INSTANCE && file.isWritable()) result.add(file);
+              return true;
+            }
+          });
+        }
+        return result;
+      }
+    });
+  }
+
+  @NotNull
+  private static List<GoImportOptimizer.Changes> collectChanges(@NotNull Project project,
+                                                                @NotNull final List<VirtualFile> files,
+                                                                @NotNull final ProgressIndicator indicator) {
+    final List<GoImportOptimizer.Changes> result = Collections.synchronizedList(ContainerUtil.<GoImportOptimizer.Changes>newArrayList());
+    final PsiManager psiManager = PsiManager.getInstance(project);
+    final AtomicInteger processed = new AtomicInteger();
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, indicator, true, new Processor<VirtualFile>() {
+      @Override
+      public boolean process(final VirtualFile file) {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (psiFile instanceof GoFile) {
+              GoImportOptimizer.Changes changes = GoImportOptimizer.collectChanges((GoFile)psiFile);
+              if (!changes.isEmpty()) result.add(changes);
+            }
+          }
+        });
+        indicator.setFraction((double)processed.incrementAndGet() / files.size());
+        return true;
+      }
+    });
+    return result;
+  }
+
+  private static void apply(@NotNull final Project project,
+                            @NotNull final List<GoImportOptimizer.Changes> changes,
+                            int from,
+                            @NotNull final Object groupId) {
+    if (project.isDisposed()) return;
+    final int to = Math.min(from + BATCH_SIZE, changes.size());
+    final List<GoImportOptimizer.Changes> batch = changes.subList(from, to);
+    CommandProcessor.getInstance().executeCommand(project, new Runnable() {
+      @Override
+      public void run() {
+        ApplicationManager.getApplication().runWriteAction(new Runnable() {
+          @Override
+          public void run() {
+            for (GoImportOptimizer.Changes change : batch) {
+              change.run();
+            }
+          }
+        });
+      }
+    }, TITLE, groupId);
+    if (to < changes.size()) {
+      ApplicationManager.getApplication().invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          apply(project, changes, to, groupId);
+        }
+      }, project.getDisposed());
+    }
+  }
+}
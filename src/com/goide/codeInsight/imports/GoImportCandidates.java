@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.codeInsight.imports;
+
+import com.goide.completion.GoCompletionUtil;
+import com.goide.psi.GoFile;
+import com.goide.stubs.index.GoImportPathsIndex;
+import com.goide.stubs.index.GoPackagesIndex;
+import com.goide.util.GoUtil;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolder;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Package name to import paths table of a module, used to offer packages for unresolved qualifiers.
+ * The import paths of a name are looked up in {@link GoPackagesIndex} once and kept until a change outside of code blocks
+ * or of the project roots. Candidates are ranked by vendoring depth (vendored copies go last), by the number of project files
+ * already importing them, as recorded in {@link GoImportPathsIndex}, and by their closeness to the context package.
+ */
+public class GoImportCandidates {
+  private static final Key<CachedValue<GoImportCandidates>> KEY = Key.create("GO_IMPORT_CANDIDATES");
+
+  @NotNull private final Project myProject;
+  @NotNull private final GlobalSearchScope myScope;
+  private final ConcurrentMap<String, List<String>> myImportPaths = ContainerUtil.newConcurrentMap();
+
+  private GoImportCandidates(@NotNull Project project, @NotNull GlobalSearchScope scope) {
+    myProject = project;
+    myScope = scope;
+  }
+
+  @NotNull
+  public static GoImportCandidates getInstance(@NotNull PsiElement context) {
+    final Project project = context.getProject();
+    final Module module = ModuleUtilCore.findModuleForPsiElement(context);
+    UserDataHolder holder = module != null ? module : project;
+    return CachedValuesManager.getManager(project).getCachedValue(holder, KEY, new CachedValueProvider<GoImportCandidates>() {
+      @Nullable
+      @Override
+      public Result<GoImportCandidates> compute() {
+        return Result.create(new GoImportCandidates(project, GoUtil.moduleScope(project, module)),
+                             PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, ProjectRootManager.getInstance(project));
+      }
+    }, false);
+  }
+
+  /**
+   * Import paths of the packages with the given name, best candidate first. The package of the context itself is excluded.
+   */
+  @NotNull
+  public List<String> getImportPaths(@NotNull String packageName, @NotNull PsiElement context) {
+    List<String> paths = myImportPaths.get(packageName);
+    if (paths == null) {
+      paths = ConcurrencyUtil.cacheOrGet(myImportPaths, packageName, findImportPaths(packageName));
+    }
+    String contextImportPath = GoCompletionUtil.getContextImportPath(context);
+    List<String> result = ContainerUtil.newArrayList();
+    for (String path : paths) {
+      if (!path.equals(contextImportPath)) result.add(path);
+    }
+    if (result.size() > 1) {
+      Collections.sort(result, new RankComparator(contextImportPath, countImports(result)));
+    }
+    return result;
+  }
+
+  @NotNull
+  private List<String> findImportPaths(@NotNull String packageName) {
+    Collection<GoFile> files = StubIndex.getElements(GoPackagesIndex.KEY, packageName, myProject, myScope, GoFile.class);
+    Set<String> result = ContainerUtil.newLinkedHashSet();
+    for (GoFile file : files) {
+      ContainerUtil.addIfNotNull(result, file.getImportPath());
+    }
+    return ContainerUtil.newArrayList(result);
+  }
+
+  /**
+   * Numbers of project files importing the given paths. They come from {@link GoImportPathsIndex} and are not cached here,
+   * so they stay current while the table is reused across edits.
+   */
+  @NotNull
+  private TObjectIntHashMap<String> countImports(@NotNull Collection<String> importPaths) {
+    TObjectIntHashMap<String> result = new TObjectIntHashMap<String>();
+    for (String path : importPaths) {
+      result.put(path, GoImportPathsIndex.getImportingFilesCount(myProject, path));
+    }
+    return result;
+  }
+
+  static int getVendoringDepth(@NotNull String importPath) {
+    int depth = 0;
+    for (String segment : StringUtil.split(importPath, "/")) {
+      if ("vendor".equals(segment) || "_workspace".equals(segment)) depth++;
+    }
+    return depth;
+  }
+
+  private static class RankComparator implements Comparator<String> {
+    @Nullable private final String myContextImportPath;
+    @NotNull private final TObjectIntHashMap<String> myUsages;
+
+    public RankComparator(@Nullable String contextImportPath, @NotNull TObjectIntHashMap<String> usages) {
+      myContextImportPath = contextImportPath;
+      myUsages = usages;
+    }
+
+    @Override
+    public int compare(@NotNull String s1, @NotNull String s2) {
+      int result = Comparing.compare(getVendoringDepth(s1), getVendoringDepth(s2));
+      if (result != 0) return result;
+      result = Comparing.compare(myUsages.get(s2), myUsages.get(s1));
+      if (result != 0) return result;
+      result = Comparing.compare(GoCompletionUtil.calculatePackagePriority(s2, myContextImportPath),
+                                 GoCompletionUtil.calculatePackagePriority(s1, myContextImportPath));
+      return result != 0 ? result : Comparing.compare(s1, s2);
+    }
+  }
+}
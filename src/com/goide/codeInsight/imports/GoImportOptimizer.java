@@ -16,9 +16,12 @@
 
 package com.goide.codeInsight.imports;
 
+import com.goide.GoParserDefinition;
 import com.goide.GoTypes;
+import com.goide.lexer.GoLexer;
 import com.goide.psi.*;
-import com.goide.psi.impl.GoReference;
+import com.goide.psi.impl.GoDotImportUsageTable;
+import com.goide.psi.impl.GoPackageSymbolTable;
 import com.intellij.lang.ImportOptimizer;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.util.Comparing;
@@ -27,6 +30,9 @@ import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
@@ -36,6 +42,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class GoImportOptimizer implements ImportOptimizer {
   @Override
@@ -48,31 +55,101 @@ public class GoImportOptimizer implements ImportOptimizer {
   public Runnable processFile(@NotNull final PsiFile file) {
     commit(file);
     assert file instanceof GoFile;
-    MultiMap<String, GoImportSpec> importMap = ((GoFile)file).getImportMap();
-    final List<PsiElement> importEntriesToDelete = ContainerUtil.newArrayList();
-    final List<PsiElement> importIdentifiersToDelete = findRedundantImportIdentifiers(importMap);
+    return collectChanges((GoFile)file);
+  }
+
+  /**
+   * Computes the import changes of a file without modifying it. Requires a read action and committed documents,
+   * the returned changes have to be applied in a write action.
+   */
+  @NotNull
+  public static Changes collectChanges(@NotNull GoFile file) {
+    MultiMap<String, GoImportSpec> importMap = file.getImportMap();
+    if (importMap.containsKey(".")) {
+      resolveDotImportCandidates(file);
+    }
+    List<PsiElement> importEntriesToDelete = ContainerUtil.newArrayList();
+    List<PsiElement> importIdentifiersToDelete = findRedundantImportIdentifiers(importMap);
 
     importEntriesToDelete.addAll(findDuplicatedEntries(importMap));
     importEntriesToDelete.addAll(filterUnusedImports(file, importMap).values());
+    return new Changes(file, importEntriesToDelete, importIdentifiersToDelete);
+  }
 
-    return new Runnable() {
+  /**
+   * Dot-import usages are recorded in {@link GoDotImportUsageTable} while resolving, so the unqualified references of a file
+   * that hasn't been highlighted have to be resolved before its dot-imports can be checked.
+   * References that resolve within the package or to another import never go through a dot-import and are skipped.
+   */
+  public static void resolveDotImportCandidates(@NotNull GoFile file) {
+    final GoPackageSymbolTable table = GoPackageSymbolTable.getInstance(file);
+    file.accept(new GoRecursiveVisitor() {
       @Override
-      public void run() {
-        commit(file);
+      public void visitReferenceExpression(@NotNull GoReferenceExpression o) {
+        if (o.getQualifier() == null && !table.isResolved(o)) o.getReference().resolve();
+        super.visitReferenceExpression(o);
+      }
 
-        for (PsiElement importEntry : importEntriesToDelete) {
-          if (importEntry != null && importEntry.isValid()) {
-            deleteImportSpec(getImportSpec(importEntry));
-          }
+      @Override
+      public void visitTypeReferenceExpression(@NotNull GoTypeReferenceExpression o) {
+        if (o.getQualifier() == null && !table.isResolved(o)) o.getReference().resolve();
+        super.visitTypeReferenceExpression(o);
+      }
+    });
+  }
+
+  /**
+   * Import changes computed for a file. The modification stamp of the file is recorded with them, changes applied after
+   * the file was edited are computed again, since an import they delete may be used by then.
+   */
+  public static class Changes implements Runnable {
+    @NotNull private final GoFile myFile;
+    private final long myModificationStamp;
+    @NotNull private final List<PsiElement> myImportEntriesToDelete;
+    @NotNull private final List<PsiElement> myImportIdentifiersToDelete;
+
+    private Changes(@NotNull GoFile file,
+                    @NotNull List<PsiElement> importEntriesToDelete,
+                    @NotNull List<PsiElement> importIdentifiersToDelete) {
+      myFile = file;
+      myModificationStamp = file.getModificationStamp();
+      myImportEntriesToDelete = importEntriesToDelete;
+      myImportIdentifiersToDelete = importIdentifiersToDelete;
+    }
+
+    @NotNull
+    public PsiFile getFile() {
+      return myFile;
+    }
+
+    public boolean isEmpty() {
+      return myImportEntriesToDelete.isEmpty() && myImportIdentifiersToDelete.isEmpty();
+    }
+
+    @Override
+    public void run() {
+      if (!myFile.isValid()) return;
+      commit(myFile);
+      if (myFile.getModificationStamp() != myModificationStamp) {
+        collectChanges(myFile).apply();
+        return;
+      }
+      apply();
+    }
+
+    private void apply() {
+      for (PsiElement importEntry : myImportEntriesToDelete) {
+        if (importEntry != null && importEntry.isValid()) {
+          deleteImportSpec(getImportSpec(importEntry));
         }
+      }
 
-        for (PsiElement identifier : importIdentifiersToDelete) {
-          if (identifier != null && identifier.isValid()) {
-            identifier.delete();
-          }
+      for (PsiElement identifier : myImportIdentifiersToDelete) {
+        if (identifier != null && identifier.isValid()) {
+          identifier.delete();
         }
       }
-    };
+    }
   }
 
   @NotNull
@@ -101,59 +178,57 @@ public class GoImportOptimizer implements ImportOptimizer {
     Collection<GoImportSpec> implicitImports = ContainerUtil.newArrayList(result.get("."));
     for (GoImportSpec importEntry : implicitImports) {
       GoImportSpec spec = getImportSpec(importEntry);
-      if (spec != null && spec.isDot()) {
-        List<? extends PsiElement> list = spec.getUserData(GoReference.IMPORT_USERS);
-        if (list != null) {
-          for (PsiElement e : list) {
-            if (e.isValid()) {
-              result.remove(".", importEntry);
-            }
-          }
-        }
+      if (spec != null && spec.isDot() && GoDotImportUsageTable.isUsed(spec)) {
+        result.remove(".", importEntry);
       }
     }
     
-    file.accept(new GoRecursiveVisitor() {
-      @Override
-      public void visitTypeReferenceExpression(@NotNull GoTypeReferenceExpression o) {
-        GoTypeReferenceExpression lastQualifier = o.getQualifier();
-        if (lastQualifier != null) {
-          GoTypeReferenceExpression previousQualifier;
-          while ((previousQualifier = lastQualifier.getQualifier()) != null) {
-            lastQualifier = previousQualifier;
-          }
-          markAsUsed(lastQualifier.getIdentifier());
-        }
-      }
+    for (String qualifier : getUsedQualifiers(file)) {
+      result.remove(qualifier);
+    }
+    return result;
+  }
 
+  /**
+   * Texts of the leftmost qualifiers used in the file, e.g. {@code a} for {@code a.b.c}, collected by a lexer pass
+   * instead of walking the PSI. Any identifier followed by a dot and an identifier counts, so a local variable named
+   * like an import marks the import as used, just as the text-based check on the PSI did.
+   */
+  @NotNull
+  public static Set<String> getUsedQualifiers(@NotNull final PsiFile file) {
+    return CachedValuesManager.getCachedValue(file, new CachedValueProvider<Set<String>>() {
+      @Nullable
       @Override
-      public void visitReferenceExpression(@NotNull GoReferenceExpression o) {
-        GoReferenceExpression lastQualifier = o.getQualifier();
-        if (lastQualifier != null) {
-          GoReferenceExpression previousQualifier;
-          while ((previousQualifier = lastQualifier.getQualifier()) != null) {
-            lastQualifier = previousQualifier;
-          }
-          markAsUsed(lastQualifier.getIdentifier());
-        }
+      public Result<Set<String>> compute() {
+        return Result.create(collectQualifiers(file.getText()), file);
       }
+    });
+  }
 
-      private void markAsUsed(@NotNull PsiElement qualifier) {
-        Collection<String> qualifiersToDelete = ContainerUtil.newHashSet();
-        for (GoImportSpec spec : result.get(qualifier.getText())) {
-          for (Map.Entry<String, Collection<GoImportSpec>> entry : result.entrySet()) {
-            for (GoImportSpec importSpec : entry.getValue()) {
-              if (importSpec == spec) {
-                qualifiersToDelete.add(entry.getKey());
-              }
-            }
-          }
-        }
-        for (String qualifierToDelete : qualifiersToDelete) {
-          result.remove(qualifierToDelete);
-        }
+  @NotNull
+  private static Set<String> collectQualifiers(@NotNull CharSequence text) {
+    Set<String> result = ContainerUtil.newTroveSet();
+    GoLexer lexer = new GoLexer();
+    lexer.start(text);
+    IElementType previous = null;
+    int identifierStart = -1;
+    int identifierEnd = -1;
+    boolean afterQualifierDot = false;
+    for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+      if (GoParserDefinition.WHITESPACES.contains(type) || GoParserDefinition.COMMENTS.contains(type)) continue;
+      if (afterQualifierDot && type == GoTypes.IDENTIFIER) {
+        result.add(text.subSequence(identifierStart, identifierEnd).toString());
       }
-    });
+      afterQualifierDot = type == GoTypes.DOT && identifierStart >= 0;
+      if (type == GoTypes.IDENTIFIER && previous != GoTypes.DOT) {
+        identifierStart = lexer.getTokenStart();
+        identifierEnd = lexer.getTokenEnd();
+      }
+      else if (type != GoTypes.DOT) {
+        identifierStart = -1;
+      }
+      previous = type;
+    }
     return result;
   }
 
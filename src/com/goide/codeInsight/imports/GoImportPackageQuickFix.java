@@ -17,12 +17,11 @@
 package com.goide.codeInsight.imports;
 
 import com.goide.GoIcons;
-import com.goide.completion.GoCompletionUtil;
 import com.goide.psi.GoFile;
 import com.goide.psi.GoReferenceExpression;
 import com.goide.psi.GoTypeReferenceExpression;
-import com.goide.stubs.index.GoPackagesIndex;
-import com.goide.util.GoUtil;
+import com.intellij.codeInsight.CodeInsightSettings;
+import com.intellij.codeInsight.daemon.impl.DaemonListeners;
 import com.intellij.codeInsight.hint.HintManager;
 import com.intellij.codeInsight.hint.QuestionAction;
 import com.intellij.codeInsight.intention.HighPriorityAction;
@@ -30,30 +29,25 @@ import com.intellij.codeInspection.HintAction;
 import com.intellij.codeInspection.LocalQuickFixAndIntentionActionOnPsiElement;
 import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.keymap.KeymapUtil;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.popup.JBPopupFactory;
-import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.TextRange;
-import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiReference;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.stubs.StubIndex;
 import com.intellij.ui.IdeBorderFactory;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBList;
-import com.intellij.util.Function;
 import com.intellij.util.NotNullFunction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.util.Collection;
-import java.util.Comparator;
 
 import static com.intellij.openapi.actionSystem.IdeActions.ACTION_SHOW_INTENTION_ACTIONS;
 import static com.intellij.util.containers.ContainerUtil.*;
@@ -98,10 +92,28 @@ public class GoImportPackageQuickFix extends LocalQuickFixAndIntentionActionOnPs
       return false;
     }
 
+    TextRange referenceRange = myRangeInElement.shiftRight(element.getTextRange().getStartOffset());
+    PsiFile file = element.getContainingFile();
+    if (packagesToImport.size() == 1 && CodeInsightSettings.getInstance().ADD_UNAMBIGIOUS_IMPORTS_ON_THE_FLY &&
+        !referenceRange.containsOffset(editor.getCaretModel().getOffset()) && notQualified(element) &&
+        DaemonListeners.canChangeFileSilently(file)) {
+      CommandProcessor.getInstance().runUndoTransparentAction(new Runnable() {
+        @Override
+        public void run() {
+          ApplicationManager.getApplication().runWriteAction(new Runnable() {
+            @Override
+            public void run() {
+              applyFix(packagesToImport, element.getContainingFile(), editor);
+            }
+          });
+        }
+      });
+      return true;
+    }
+
     String shortcutText = KeymapUtil.getFirstKeyboardShortcutText(ActionManager.getInstance().getAction(ACTION_SHOW_INTENTION_ACTIONS));
     String message = getText(packagesToImport) + shortcutText;
 
-    TextRange referenceRange = myRangeInElement.shiftRight(element.getTextRange().getStartOffset());
     HintManager.getInstance().showQuestionHint(
       editor,
       message,
@@ -170,21 +182,7 @@ public class GoImportPackageQuickFix extends LocalQuickFixAndIntentionActionOnPs
   @NotNull
   private Collection<String> getPackagesToImport(@NotNull PsiElement element) {
     if (myPackagesToImport == null) {
-      final GlobalSearchScope scope = GoUtil.moduleScope(element);
-      PsiFile file = element.getContainingFile();
-      final PsiDirectory parentDirectory = file != null ? file.getParent() : null;
-      Collection<GoFile> es = StubIndex.getElements(GoPackagesIndex.KEY, myPackageName, element.getProject(), scope, GoFile.class);
-      myPackagesToImport = sorted(skipNulls(map2Set(
-        es,
-        new Function<GoFile, String>() {
-          @Nullable
-          @Override
-          public String fun(@NotNull GoFile file) {
-            PsiDirectory parent = file.getParent();
-            return parentDirectory == null || !parentDirectory.isEquivalentTo(parent) ? file.getImportPath() : null;
-          }
-        }
-      )), new MyImportsComparator(element));
+      myPackagesToImport = GoImportCandidates.getInstance(element).getImportPaths(myPackageName, element);
     }
     return myPackagesToImport;
   }
@@ -229,20 +227,4 @@ public class GoImportPackageQuickFix extends LocalQuickFixAndIntentionActionOnPs
       ((GoFile)file).addImport(firstItem, null);
     }
   }
-
-  private static class MyImportsComparator implements Comparator<String> {
-    @Nullable
-    private final String myContextImportPath;
-
-    public MyImportsComparator(@Nullable PsiElement context) {
-      myContextImportPath = GoCompletionUtil.getContextImportPath(context);
-    }
-
-    @Override
-    public int compare(@NotNull String s1, @NotNull String s2) {
-      int result = Comparing.compare(GoCompletionUtil.calculatePackagePriority(s2, myContextImportPath),
-                                     GoCompletionUtil.calculatePackagePriority(s1, myContextImportPath));
-      return result != 0 ? result : Comparing.compare(s1, s2);
-    }
-  }
 }
@@ -56,6 +56,7 @@ public class GoCompletionUtil {
   public static final int VAR_PRIORITY = NOT_IMPORTED_VAR_PRIORITY + 10;
   public static final int LABEL_PRIORITY = 15;
   public static final int PACKAGE_PRIORITY = 5;
+  public static final int CHAIN_PRIORITY = 0;
   public static final InsertHandler<LookupElement> FUNCTION_INSERT_HANDLER = new InsertHandler<LookupElement>() {
     @Override
     public void handleInsert(InsertionContext context, LookupElement item) {
@@ -241,6 +242,16 @@ public class GoCompletionUtil {
                                                    .withInsertHandler(insertHandler), priority);
   }
 
+  @NotNull
+  public static LookupElement createChainLookupElement(@NotNull GoNamedElement member, @NotNull String qualifier) {
+    String name = StringUtil.notNullize(member.getName());
+    LookupElementBuilder builder = LookupElementBuilder.createWithSmartPointer(qualifier + name, member)
+      .withLookupString(name)
+      .withRenderer(member instanceof GoNamedSignatureOwner ? FUNCTION_RENDERER : VARIABLE_RENDERER)
+      .withInsertHandler(member instanceof GoNamedSignatureOwner ? FUNCTION_INSERT_HANDLER : null);
+    return PrioritizedLookupElement.withPriority(builder, CHAIN_PRIORITY);
+  }
+
   @Nullable
   private static String calcTailTextForFields(@NotNull GoNamedElement v) {
     String name = null;
@@ -24,6 +24,7 @@ import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.ResolveState;
 import com.intellij.psi.impl.source.resolve.reference.impl.PsiMultiReference;
@@ -34,6 +35,8 @@ import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 import static com.goide.completion.GoCompletionUtil.createPrefixMatcher;
 
 public class GoReferenceCompletionProvider extends CompletionProvider<CompletionParameters> {
@@ -41,7 +44,11 @@ public class GoReferenceCompletionProvider extends CompletionProvider<Completion
   protected void addCompletions(@NotNull CompletionParameters parameters, ProcessingContext context, @NotNull CompletionResultSet set) {
     GoReferenceExpressionBase expression = PsiTreeUtil.getParentOfType(parameters.getPosition(), GoReferenceExpressionBase.class);
     if (expression != null) {
-      fillVariantsByReference(expression.getReference(), set.withPrefixMatcher(createPrefixMatcher(set.getPrefixMatcher())));
+      CompletionResultSet result = set.withPrefixMatcher(createPrefixMatcher(set.getPrefixMatcher()));
+      fillVariantsByReference(expression.getReference(), result);
+      if (parameters.getInvocationCount() > 1) {
+        addChainVariants(expression, parameters.getOriginalFile(), result);
+      }
     }
     PsiElement parent = parameters.getPosition().getParent();
     if (parent != null) {
@@ -85,6 +92,42 @@ public class GoReferenceCompletionProvider extends CompletionProvider<Completion
     }
   }
 
+  /**
+   * Second-level member suggestions like {@code x.Foo().Bar}, computed from the cached member sets of the intermediate types.
+   */
+  private static void addChainVariants(@NotNull GoReferenceExpressionBase expression,
+                                       @NotNull PsiFile file,
+                                       @NotNull CompletionResultSet result) {
+    GoTypeSpec qualifierSpec = getQualifierSpec(expression);
+    for (GoNamedElement member : GoTypeMemberCache.getAccessibleMembers(qualifierSpec, file)) {
+      if (member instanceof GoSignatureOwner && GoPsiImplUtil.getArity(((GoSignatureOwner)member).getSignature()) != 0) continue;
+      GoTypeSpec memberSpec = GoTypeMemberCache.getMemberOwnerSpec(member);
+      if (memberSpec == null) continue;
+      String qualifier = member.getName() + (member instanceof GoSignatureOwner ? "()." : ".");
+      for (GoNamedElement second : GoTypeMemberCache.getAccessibleMembers(memberSpec, file)) {
+        result.addElement(GoCompletionUtil.createChainLookupElement(second, qualifier));
+      }
+    }
+  }
+
+  @Nullable
+  private static GoTypeSpec getQualifierSpec(@NotNull GoReferenceExpressionBase expression) {
+    GoReferenceExpressionBase qualifier = expression.getQualifier();
+    if (qualifier != null) {
+      PsiReference reference = qualifier.getReference();
+      PsiElement resolve = reference != null ? reference.resolve() : null;
+      return resolve instanceof GoNamedElement ? GoTypeMemberCache.getMemberOwnerSpec((GoNamedElement)resolve) : null;
+    }
+    PsiElement parent = expression.getParent();
+    if (parent instanceof GoSelectorExpr) {
+      List<GoExpression> list = ((GoSelectorExpr)parent).getExpressionList();
+      if (list.size() > 1 && list.get(1).isEquivalentTo(expression)) {
+        return GoTypeMemberCache.getMemberOwnerSpec(list.get(0).getGoType(null));
+      }
+    }
+    return null;
+  }
+
   private static void addElement(@NotNull PsiElement o, @NotNull ResolveState state, boolean forTypes, @NotNull CompletionResultSet set) {
     LookupElement lookup = createLookupElement(o, state, forTypes);
     if (lookup != null) {
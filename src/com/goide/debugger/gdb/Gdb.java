@@ -18,15 +18,31 @@ package com.goide.debugger.gdb;
 
 import com.goide.debugger.gdb.gdbmi.*;
 import com.goide.debugger.gdb.messages.*;
+import com.intellij.concurrency.JobScheduler;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.PooledThreadExecutor;
+import com.intellij.util.concurrency.SequentialTaskExecutor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
 
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Class for interacting with GDB.
@@ -46,53 +62,184 @@ public class Gdb {
     void onGdbCommandCompleted(GdbEvent event);
   }
 
+  /**
+   * Tells whether the result of a request is still needed, e.g. whether the frame it was made for is still shown.
+   * Commands of an obsolete request that have not been sent to GDB yet are dropped.
+   */
+  public interface Obsolescent {
+    boolean isObsolete();
+  }
+
   // Information about a command that is awaiting processing
   private static class CommandData {
     // The command
     String command;
     // The user provided callback; may be null
     GdbEventCallback callback;
+    // The requester of the command; may be null
+    Obsolescent requester;
+    // The batch this entry stands for in the queue; null for single commands
+    CommandBatch batch;
 
-    CommandData(String command, GdbEventCallback callback) {
+    CommandData(String command, GdbEventCallback callback, Obsolescent requester) {
       this.command = command;
       this.callback = callback;
+      this.requester = requester;
+    }
+
+    CommandData(@NotNull CommandBatch batch) {
+      this.batch = batch;
     }
   }
 
+  // Commands that are sent one at a time, each once GDB has responded to the previous one, with no other command in
+  // between. The writer thread holds back the queue while a batch is active
+  private class CommandBatch implements GdbEventCallback {
+    @NotNull private final List<String> myCommands;
+    @NotNull private final List<String> myCleanup;
+    @NotNull private final AsyncPromise<List<GdbEvent>> myPromise = new AsyncPromise<List<GdbEvent>>();
+    @NotNull private final List<GdbEvent> myEvents = new ArrayList<GdbEvent>();
+    // Index of the next command to send, counting the cleanup commands after the commands
+    private int myNext;
+    private boolean myAwaitingResponse;
+    private boolean myDone;
+    @Nullable private String myError;
+
+    CommandBatch(@NotNull List<String> commands, @NotNull List<String> cleanup) {
+      myCommands = commands;
+      myCleanup = cleanup;
+    }
+
+    /**
+     * Returns the next command to send, or null if the previous one has not been answered yet or the batch is done.
+     */
+    @Nullable
+    synchronized CommandData takeNext() {
+      if (myAwaitingResponse || myDone) {
+        return null;
+      }
+      String command = myNext < myCommands.size() ? myCommands.get(myNext) : myCleanup.get(myNext - myCommands.size());
+      myNext++;
+      myAwaitingResponse = true;
+      return new CommandData(command, this, null);
+    }
+
+    synchronized boolean isDone() {
+      return myDone;
+    }
+
+    @Override
+    public void onGdbCommandCompleted(GdbEvent event) {
+      String error;
+      synchronized (this) {
+        myAwaitingResponse = false;
+        boolean cleanup = myNext > myCommands.size();
+        if (event instanceof GdbErrorEvent) {
+          if (myError == null) {
+            myError = String.valueOf(((GdbErrorEvent)event).message);
+          }
+          if (myNext == 1) {
+            // Nothing has been changed that needs cleaning up
+            myNext = myCommands.size() + myCleanup.size();
+          }
+          else if (!cleanup) {
+            myNext = myCommands.size();
+          }
+        }
+        else if (!cleanup) {
+          myEvents.add(event);
+        }
+        myDone = myNext >= myCommands.size() + myCleanup.size();
+        if (!myDone) {
+          wakeUpWriter();
+          return;
+        }
+        error = myError;
+      }
+
+      if (error != null) {
+        myPromise.setError(error);
+      }
+      else {
+        myPromise.setResult(myEvents);
+      }
+      wakeUpWriter();
+    }
+  }
+
+  /**
+   * Time after which asynchronous commands GDB has not responded to are rejected, in milliseconds.
+   */
+  public static final long DEFAULT_COMMAND_TIMEOUT = 30000;
+
+  /**
+   * Number of variable objects kept in GDB. Least recently used variable objects beyond this number are deleted.
+   */
+  public static final int MAX_VARIABLE_OBJECTS = 1000;
+
+  /**
+   * Number of top frames listed again when a stack that was listed before is requested.
+   */
+  public static final int STACK_PREFIX_DEPTH = 20;
+
   // Handle to the ASCII character set
   @NotNull private static final Charset ourCharset = Charset.forName("US-ASCII");
 
+  // Maximum number of commands sent to GDB and not answered yet; further commands stay queued until responses arrive
+  private static final int MAX_COMMANDS_IN_FLIGHT = 64;
+
+  // Size of the buffer GDB output is read into; large responses such as -stack-list-variables or -thread-info
+  // take fewer reads with a bigger buffer
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
   // The listener
   private final GdbListener myListener;
 
   // Handle for the GDB process
-  private Process myProcess;
+  private volatile Process myProcess;
 
   // Threads which read/write data from GDB
   private final Thread myReadThread;
-  private Thread myWriteThread;
+  private volatile Thread myWriteThread;
 
   // Flag indicating whether we are stopping
-  @NotNull private Boolean myStopping = false;
+  private volatile boolean myStopping = false;
 
   // Flag indicating whether we have received the first record from GDB yet
   private boolean myFirstRecord = true;
 
-  // Token which the next GDB command will be sent with
+  // Token which the next GDB command will be sent with; only used by the writer thread
   private long myToken = 1;
 
-  // Commands that are waiting to be sent
-  private List<CommandData> myQueuedCommands = new ArrayList<CommandData>();
+  // Commands that are waiting to be sent. Any thread may add commands, only the writer thread takes them
+  private final Queue<CommandData> myQueuedCommands = new ConcurrentLinkedQueue<CommandData>();
+
+  // The batch whose commands are being sent; only used by the writer thread
+  @Nullable private CommandBatch myActiveBatch;
 
-  // Commands that have been sent to GDB and are awaiting a response
-  private final Map<Long, CommandData> myPendingCommands = new HashMap<Long, CommandData>();
+  // Commands that have been sent to GDB and are awaiting a response, and their number
+  private final ConcurrentMap<Long, CommandData> myPendingCommands = new ConcurrentHashMap<Long, CommandData>();
+  private final AtomicInteger myCommandsInFlight = new AtomicInteger();
 
   // GDB variable objects
-  private final Map<String, GdbVariableObject> myVariableObjectsByExpression = new HashMap<String, GdbVariableObject>();
-  private final Map<String, GdbVariableObject> myVariableObjectsByName = new HashMap<String, GdbVariableObject>();
+  private final GdbVariableObjectCache myVariableObjects = new GdbVariableObjectCache(MAX_VARIABLE_OBJECTS);
+
+  // Runs the bookkeeping of variable objects one task at a time. Responses arrive on the reader thread and timeouts on
+  // the scheduler thread, so both are passed through here before the variable objects are touched
+  private final Executor myVariableObjectExecutor = new SequentialTaskExecutor(PooledThreadExecutor.INSTANCE);
+
+  // Variable object creations that have been sent and are awaiting a response, keyed by thread, frame and expression;
+  // only used on the variable object executor
+  private final Map<String, AsyncPromise<GdbEvent>> myPendingCreations = new HashMap<String, AsyncPromise<GdbEvent>>();
+
+  // Last known stacks of threads
+  private final GdbStackCache myStacks = new GdbStackCache();
 
   // List of capabilities supported by GDB
-  private Set<String> myCapabilities;
+  private volatile Set<String> myCapabilities;
+
+  // Size of a pointer of the inferior in bytes; requested on first use
+  private final AtomicReference<AsyncPromise<Integer>> myPointerSize = new AtomicReference<AsyncPromise<Integer>>();
 
   /**
    * Constructor; prepares GDB.
@@ -116,7 +263,7 @@ public class Gdb {
    * Finalizer. Kills GDB and the I/O threads.
    */
   @Override
-  protected synchronized void finalize() throws Throwable {
+  protected void finalize() throws Throwable {
     super.finalize();
 
     // Terminate the I/O threads
@@ -126,7 +273,7 @@ public class Gdb {
     }
     if (myWriteThread != null) {
       myStopping = true;
-      myWriteThread.notify();
+      LockSupport.unpark(myWriteThread);
       myWriteThread.interrupt();
       myWriteThread.join();
     }
@@ -164,10 +311,207 @@ public class Gdb {
    *                 should not contain any line breaks.
    * @param callback The callback function.
    */
-  public synchronized void sendCommand(String command, GdbEventCallback callback) {
-    // Queue the command
-    myQueuedCommands.add(new CommandData(command, callback));
-    notify();
+  public void sendCommand(String command, GdbEventCallback callback) {
+    sendCommand(command, callback, null);
+  }
+
+  /**
+   * Sends an arbitrary command to GDB and requests a completion callback. If the requester becomes obsolete before the
+   * command is sent, the command is dropped and the callback receives a GdbErrorEvent.
+   */
+  private void sendCommand(String command, GdbEventCallback callback, @Nullable Obsolescent requester) {
+    // Queue the command and wake up the writer thread
+    myQueuedCommands.add(new CommandData(command, callback, requester));
+    wakeUpWriter();
+  }
+
+  /**
+   * Sends an arbitrary command to GDB. Commands sent without waiting for the results of each other are written to GDB
+   * together, so independent commands take about one round trip.
+   *
+   * @param command   The command to send. It should not contain any line breaks.
+   * @param requester The requester of the command. May be null.
+   * @param timeout   Time in milliseconds after which the promise is rejected if GDB has not responded; 0 for no limit.
+   * @return A promise of the event GDB responded with; rejected with the message of a GdbErrorEvent, on timeout, or if the
+   * requester became obsolete before the command was sent.
+   */
+  @NotNull
+  public AsyncPromise<GdbEvent> sendCommandAsync(@NotNull final String command, @Nullable final Obsolescent requester,
+                                                 final long timeout) {
+    final PendingCommand pending = new PendingCommand();
+    sendCommand(command, new GdbEventCallback() {
+      @Override
+      public void onGdbCommandCompleted(GdbEvent event) {
+        AsyncPromise<GdbEvent> promise = pending.settle();
+        if (promise == null) {
+          return;
+        }
+        if (event instanceof GdbErrorEvent) {
+          promise.setError(String.valueOf(((GdbErrorEvent)event).message));
+        }
+        else {
+          promise.setResult(event);
+        }
+      }
+    }, new Obsolescent() {
+      @Override
+      public boolean isObsolete() {
+        return pending.isSettled() || requester != null && requester.isObsolete();
+      }
+    });
+    if (timeout > 0) {
+      pending.scheduleTimeout("GDB did not respond to " + command + " in " + timeout + " ms", timeout);
+    }
+    return pending.myPromise;
+  }
+
+  /**
+   * Promise of an asynchronous command, settled either by the response of GDB or by the timeout, whichever comes first.
+   */
+  private static class PendingCommand implements Runnable {
+    @NotNull private final AsyncPromise<GdbEvent> myPromise = new AsyncPromise<GdbEvent>();
+    private final AtomicBoolean mySettled = new AtomicBoolean();
+    private volatile String myTimeoutMessage;
+    private volatile ScheduledFuture<?> myTimeout;
+
+    /**
+     * Marks the command as settled and cancels its timeout.
+     *
+     * @return The promise to settle, or null if the command has been settled already.
+     */
+    @Nullable
+    AsyncPromise<GdbEvent> settle() {
+      if (!mySettled.compareAndSet(false, true)) {
+        return null;
+      }
+      ScheduledFuture<?> timeout = myTimeout;
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      return myPromise;
+    }
+
+    boolean isSettled() {
+      return mySettled.get();
+    }
+
+    void scheduleTimeout(@NotNull String message, long timeout) {
+      myTimeoutMessage = message;
+      myTimeout = JobScheduler.getScheduler().schedule(this, timeout, TimeUnit.MILLISECONDS);
+      // The response may have arrived before the future was stored
+      if (isSettled()) {
+        myTimeout.cancel(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      AsyncPromise<GdbEvent> promise = settle();
+      if (promise != null) {
+        promise.setError(myTimeoutMessage);
+      }
+    }
+  }
+
+  /**
+   * Sends commands that must run one after another with no other command in between, such as commands that borrow the
+   * registers of a thread and restore them. Each command is sent once GDB has responded to the previous one. When a
+   * command fails the remaining commands are skipped and the cleanup commands are sent, unless the first command failed:
+   * it is expected to save the state the cleanup commands restore.
+   *
+   * @param commands The commands to send; must not be empty.
+   * @param cleanup  The commands to send after the commands, whether they succeed or not.
+   * @return A promise of the events GDB responded to the commands with; rejected with the message of the first error,
+   * including errors of the cleanup commands.
+   */
+  @NotNull
+  public AsyncPromise<List<GdbEvent>> sendCommandBatch(@NotNull List<String> commands, @NotNull List<String> cleanup) {
+    if (commands.isEmpty()) {
+      throw new IllegalArgumentException("A command batch needs at least one command");
+    }
+    CommandBatch batch = new CommandBatch(commands, cleanup);
+    myQueuedCommands.add(new CommandData(batch));
+    wakeUpWriter();
+    return batch.myPromise;
+  }
+
+  /**
+   * Reads memory of the inferior. Several reads sent without waiting for each other take about one round trip.
+   *
+   * @param thread    The thread to evaluate the address in.
+   * @param frame     The frame to evaluate the address in.
+   * @param address   An expression of the address to read from.
+   * @param count     The number of bytes to read.
+   * @param requester The requester of the memory. May be null.
+   * @return A promise of the bytes read from the address; shorter than count if only a part of the range is readable.
+   */
+  @NotNull
+  public AsyncPromise<byte[]> readMemory(int thread, int frame, @NotNull String address, int count,
+                                         @Nullable Obsolescent requester) {
+    final AsyncPromise<byte[]> result = new AsyncPromise<byte[]>();
+    String command = "-data-read-memory-bytes --thread " + thread + " --frame " + frame + " " +
+                     GdbMiUtil.formatGdbString(address) + " " + count;
+    AsyncPromise<GdbEvent> memory = sendCommandAsync(command, requester, DEFAULT_COMMAND_TIMEOUT);
+    memory.done(new Consumer<GdbEvent>() {
+      @Override
+      public void consume(GdbEvent event) {
+        if (!(event instanceof GdbMemoryBlocks)) {
+          LOG.warn("Unexpected event " + event + " received from -data-read-memory-bytes request");
+          result.setError("Unexpected data received from GDB");
+          return;
+        }
+        // Only the part readable from the start address is useful
+        List<GdbMemoryBlock> blocks = ((GdbMemoryBlocks)event).blocks;
+        GdbMemoryBlock first = blocks != null && !blocks.isEmpty() ? blocks.get(0) : null;
+        if (first == null || first.contents == null || first.offset == null || first.offset != 0) {
+          result.setResult(new byte[0]);
+          return;
+        }
+        result.setResult(GdbMiUtil.parseHexBytes(first.contents));
+      }
+    });
+    memory.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        result.setError(error);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Gets the size of a pointer of the inferior. It is requested from GDB on the first call and cached afterwards.
+   *
+   * @return A promise of the size in bytes; the size of the host is assumed if GDB cannot tell it.
+   */
+  @NotNull
+  public AsyncPromise<Integer> getPointerSize() {
+    AsyncPromise<Integer> pointerSize = myPointerSize.get();
+    if (pointerSize != null) {
+      return pointerSize;
+    }
+    final AsyncPromise<Integer> result = new AsyncPromise<Integer>();
+    if (!myPointerSize.compareAndSet(null, result)) {
+      return myPointerSize.get();
+    }
+
+    final int defaultSize = "32".equals(System.getProperty("sun.arch.data.model")) ? 4 : 8;
+    AsyncPromise<GdbEvent> size = sendCommandAsync("-data-evaluate-expression \"sizeof(uintptr)\"", null,
+                                                   DEFAULT_COMMAND_TIMEOUT);
+    size.done(new Consumer<GdbEvent>() {
+      @Override
+      public void consume(GdbEvent event) {
+        String value = event instanceof GdbExpressionValue ? ((GdbExpressionValue)event).value : null;
+        result.setResult("4".equals(value) ? 4 : "8".equals(value) ? 8 : defaultSize);
+      }
+    });
+    size.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        result.setResult(defaultSize);
+      }
+    });
+    return result;
   }
 
   /**
@@ -176,35 +520,144 @@ public class Gdb {
    * @param capability The capability to check for.
    * @return Whether GDB has the capability.
    */
-  public synchronized boolean hasCapability(String capability) {
-    if (myCapabilities == null) {
+  public boolean hasCapability(String capability) {
+    Set<String> capabilities = myCapabilities;
+    if (capabilities == null) {
       LOG.warn("Capabilities list is null; returning 'unsupported' for capability " +
                  capability);
       return false;
     }
 
-    return myCapabilities.contains(capability);
+    return capabilities.contains(capability);
+  }
+
+  /**
+   * Lists the stack of the given thread. After the first listing only the top frames and the depth of the stack are
+   * requested, together in one round trip, and the bottom of the stack is reused from the previous listing when the two
+   * agree; otherwise the whole stack is listed again.
+   *
+   * @param thread    The thread.
+   * @param requester The requester of the stack. May be null.
+   * @return A promise of the stack frames, top first.
+   */
+  @NotNull
+  public AsyncPromise<List<GdbStackFrame>> getStackFrames(final int thread, @Nullable final Obsolescent requester) {
+    final AsyncPromise<List<GdbStackFrame>> result = new AsyncPromise<List<GdbStackFrame>>();
+    final List<GdbStackFrame> cached = myStacks.get(thread);
+    if (cached == null || cached.size() <= STACK_PREFIX_DEPTH) {
+      listStackFrames(thread, requester, result);
+      return result;
+    }
+
+    String prefixCommand = "-stack-list-frames --thread " + thread + " 0 " + (STACK_PREFIX_DEPTH - 1);
+    final AsyncPromise<GdbEvent> prefix = sendCommandAsync(prefixCommand, requester, DEFAULT_COMMAND_TIMEOUT);
+    String depthCommand = "-stack-info-depth --thread " + thread;
+    AsyncPromise<GdbEvent> depth = sendCommandAsync(depthCommand, requester, DEFAULT_COMMAND_TIMEOUT);
+    depth.done(new Consumer<GdbEvent>() {
+      @Override
+      public void consume(final GdbEvent depthEvent) {
+        prefix.done(new Consumer<GdbEvent>() {
+          @Override
+          public void consume(GdbEvent prefixEvent) {
+            List<GdbStackFrame> stack = null;
+            if (depthEvent instanceof GdbStackDepth && ((GdbStackDepth)depthEvent).depth != null &&
+                prefixEvent instanceof GdbStackTrace && ((GdbStackTrace)prefixEvent).stack != null) {
+              stack = GdbStackCache.merge(cached, ((GdbStackTrace)prefixEvent).stack, ((GdbStackDepth)depthEvent).depth);
+            }
+            if (stack == null) {
+              listStackFrames(thread, requester, result);
+              return;
+            }
+            myStacks.put(thread, stack);
+            result.setResult(stack);
+          }
+        });
+        prefix.rejected(new Consumer<Throwable>() {
+          @Override
+          public void consume(Throwable error) {
+            result.setError(error);
+          }
+        });
+      }
+    });
+    depth.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        // Older versions of GDB may lack -stack-info-depth
+        listStackFrames(thread, requester, result);
+      }
+    });
+    return result;
+  }
+
+  private void listStackFrames(final int thread, @Nullable Obsolescent requester,
+                               @NotNull final AsyncPromise<List<GdbStackFrame>> result) {
+    String command = "-stack-list-frames --thread " + thread;
+    AsyncPromise<GdbEvent> frames = sendCommandAsync(command, requester, DEFAULT_COMMAND_TIMEOUT);
+    frames.done(new Consumer<GdbEvent>() {
+      @Override
+      public void consume(GdbEvent event) {
+        if (!(event instanceof GdbStackTrace)) {
+          LOG.warn("Unexpected event " + event + " received from -stack-list-frames request");
+          result.setError("Unexpected data received from GDB");
+          return;
+        }
+        List<GdbStackFrame> stack = ((GdbStackTrace)event).stack;
+        if (stack == null) {
+          stack = Collections.emptyList();
+        }
+        myStacks.put(thread, stack);
+        result.setResult(stack);
+      }
+    });
+    frames.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        result.setError(error);
+      }
+    });
   }
 
   /**
-   * Gets information about the local variables for the given stack frame.
+   * Gets information about the local variables for the given stack frame. Variable objects are created for all new
+   * variables at once and updated together with the existing ones, which takes two round trips regardless of the number
+   * of variables.
    *
-   * @param thread   The thread on which the frame resides.
-   * @param frame    The frame number.
-   * @param callback The callback function. This is passed a GdbVariableObjects value on success,
-   *                 or GdbErrorEvent on failure.
+   * @param thread    The thread on which the frame resides.
+   * @param frame     The frame number.
+   * @param requester The requester of the variables. May be null.
+   * @return A promise of the variable objects.
    */
-  public void getVariablesForFrame(final int thread, final int frame,
-                                   @NotNull final GdbEventCallback callback) {
+  @NotNull
+  public AsyncPromise<GdbVariableObjects> getVariablesForFrame(final int thread, final int frame,
+                                                                @Nullable final Obsolescent requester) {
+    final AsyncPromise<GdbVariableObjects> result = new AsyncPromise<GdbVariableObjects>();
+
     // Get a list of local variables
-    String command = "-stack-list-variables --thread " + thread + " --frame " + frame +
-                     " --no-values";
-    sendCommand(command, new GdbEventCallback() {
+    String command = "-stack-list-variables --thread " + thread + " --frame " + frame + " --no-values";
+    AsyncPromise<GdbEvent> variables = sendCommandAsync(command, requester, DEFAULT_COMMAND_TIMEOUT);
+    variables.done(new Consumer<GdbEvent>() {
       @Override
-      public void onGdbCommandCompleted(GdbEvent event) {
-        onGdbVariablesReady(event, thread, frame, callback);
+      public void consume(GdbEvent event) {
+        if (!(event instanceof GdbVariables)) {
+          LOG.warn("Unexpected event " + event + " received from -stack-list-variables request");
+          result.setError("Unexpected data received from GDB");
+          return;
+        }
+        Map<String, String> expressions = new LinkedHashMap<String, String>();
+        for (String variable : ((GdbVariables)event).variables.keySet()) {
+          expressions.put(variable, variable);
+        }
+        updateVariableObjects(thread, frame, expressions, requester, result);
       }
     });
+    variables.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        result.setError(error);
+      }
+    });
+    return result;
   }
 
   /**
@@ -213,35 +666,165 @@ public class Gdb {
    * @param thread     The thread to evaluate the expression in.
    * @param frame      The frame to evaluate the expression in.
    * @param expression The expression to evaluate.
-   * @param callback   The callback function.
-   */
-  public void evaluateExpression(int thread, int frame, @NotNull final String expression,
-                                 @NotNull final GdbEventCallback callback) {
-    // TODO: Make this more efficient
-
-    // Create a new variable object if necessary
-    GdbVariableObject variableObject = myVariableObjectsByExpression.get(expression);
-    if (variableObject == null) {
-      String command = "-var-create --thread " + thread + " --frame " + frame + " - @ " +
-                       GdbMiUtil.formatGdbString(expression);
-      sendCommand(command, new GdbEventCallback() {
+   * @return A promise of the variable object of the expression.
+   */
+  @NotNull
+  public AsyncPromise<GdbVariableObjects> evaluateExpression(int thread, int frame, @NotNull String expression) {
+    AsyncPromise<GdbVariableObjects> result = new AsyncPromise<GdbVariableObjects>();
+    updateVariableObjects(thread, frame, Collections.singletonMap(expression, GdbMiUtil.formatGdbString(expression)),
+                          null, result);
+    return result;
+  }
+
+  /**
+   * Updates the variable objects of the given frame and creates variable objects for the expressions that do not have one
+   * yet. Variable objects of other frames are not updated. All commands are sent at once.
+   *
+   * @param thread      The thread to evaluate the expressions in.
+   * @param frame       The frame to evaluate the expressions in.
+   * @param expressions The expressions mapped to their form in -var-create commands.
+   * @param requester   The requester of the variables. May be null.
+   * @param result      The promise to fulfill with the variable objects of the expressions.
+   */
+  private void updateVariableObjects(final int thread, final int frame, @NotNull final Map<String, String> expressions,
+                                     @Nullable final Obsolescent requester,
+                                     @NotNull final AsyncPromise<GdbVariableObjects> result) {
+    myVariableObjectExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        sendVariableObjectCommands(thread, frame, expressions, requester, result);
+      }
+    });
+  }
+
+  /**
+   * Sends the commands of {@link #updateVariableObjects}. Must be called on the variable object executor.
+   */
+  private void sendVariableObjectCommands(final int thread, final int frame, @NotNull final Map<String, String> expressions,
+                                          @Nullable Obsolescent requester,
+                                          @NotNull final AsyncPromise<GdbVariableObjects> result) {
+    final List<AsyncPromise<GdbEvent>> commands = new ArrayList<AsyncPromise<GdbEvent>>();
+
+    // Update existing variable objects of the frame, one command per object; the writer sends them without waiting
+    // for each other's responses, and objects of other frames are not evaluated
+    for (GdbVariableObject variableObject : myVariableObjects.getFrameObjects(thread, frame)) {
+      String command = "-var-update --thread " + thread + " --frame " + frame + " --all-values " +
+                       GdbMiUtil.formatGdbString(variableObject.name);
+      AsyncPromise<GdbEvent> update = sendCommandAsync(command, requester, DEFAULT_COMMAND_TIMEOUT);
+      update.done(new Consumer<GdbEvent>() {
         @Override
-        public void onGdbCommandCompleted(GdbEvent event) {
-          onGdbNewVariableObjectReady(event, expression, callback);
+        public void consume(final GdbEvent event) {
+          myVariableObjectExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              onGdbVariableObjectsUpdated(event);
+            }
+          });
+        }
+      });
+      commands.add(update);
+    }
+
+    // Create variable objects for new expressions, waiting for a creation already in flight rather than sending another
+    for (final Map.Entry<String, String> expression : expressions.entrySet()) {
+      if (myVariableObjects.get(thread, frame, expression.getKey()) != null) {
+        continue;
+      }
+      final String key = thread + " " + frame + " " + expression.getKey();
+      AsyncPromise<GdbEvent> create = myPendingCreations.get(key);
+      if (create == null) {
+        String command = "-var-create --thread " + thread + " --frame " + frame + " - @ " + expression.getValue();
+        create = sendCommandAsync(command, requester, DEFAULT_COMMAND_TIMEOUT);
+        myPendingCreations.put(key, create);
+        create.done(new Consumer<GdbEvent>() {
+          @Override
+          public void consume(final GdbEvent event) {
+            myVariableObjectExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                myPendingCreations.remove(key);
+                onGdbNewVariableObjectReady(event, thread, frame, expression.getKey());
+              }
+            });
+          }
+        });
+        create.rejected(new Consumer<Throwable>() {
+          @Override
+          public void consume(Throwable error) {
+            myVariableObjectExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                myPendingCreations.remove(key);
+              }
+            });
+          }
+        });
+      }
+      commands.add(create);
+    }
+
+    if (commands.isEmpty()) {
+      result.setResult(collectVariableObjects(thread, frame, expressions.keySet()));
+      return;
+    }
+
+    // Collect the variable objects once all commands are done; a failed command only leaves its expression out of the
+    // result or its value stale, unless no variable object is left at all
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final AtomicInteger remaining = new AtomicInteger(commands.size());
+    final Runnable collect = new Runnable() {
+      @Override
+      public void run() {
+        GdbVariableObjects objects = collectVariableObjects(thread, frame, expressions.keySet());
+        if (objects.objects.isEmpty() && error.get() != null) {
+          result.setError(error.get());
+          return;
+        }
+        result.setResult(objects);
+      }
+    };
+    Runnable onSettled = new Runnable() {
+      @Override
+      public void run() {
+        // Queued after the bookkeeping of the responses that arrived before
+        if (remaining.decrementAndGet() == 0) {
+          myVariableObjectExecutor.execute(collect);
+        }
+      }
+    };
+    for (AsyncPromise<GdbEvent> promise : commands) {
+      promise.rejected(new Consumer<Throwable>() {
+        @Override
+        public void consume(Throwable throwable) {
+          error.compareAndSet(null, throwable);
         }
       });
+      promise.done(new RunnableConsumer<GdbEvent>(onSettled));
+      promise.rejected(new RunnableConsumer<Throwable>(onSettled));
+    }
+  }
+
+  /**
+   * Deletes the given variable object and its children in GDB.
+   */
+  private void deleteVariableObject(@NotNull GdbVariableObject variableObject) {
+    sendCommand("-var-delete " + GdbMiUtil.formatGdbString(variableObject.name), null);
+  }
+
+  /**
+   * Consumer which ignores the value and runs a runnable.
+   */
+  private static class RunnableConsumer<T> implements Consumer<T> {
+    @NotNull private final Runnable myRunnable;
+
+    RunnableConsumer(@NotNull Runnable runnable) {
+      myRunnable = runnable;
     }
 
-    // Update existing variable objects
-    sendCommand("-var-update --thread " + thread + " --frame " + frame + " --all-values *",
-                new GdbEventCallback() {
-                  @Override
-                  public void onGdbCommandCompleted(GdbEvent event) {
-                    HashSet<String> expressions = new HashSet<String>();
-                    expressions.add(expression);
-                    onGdbVariableObjectsUpdated(event, expressions, callback);
-                  }
-                });
+    @Override
+    public void consume(T t) {
+      myRunnable.run();
+    }
   }
 
   /**
@@ -275,29 +858,32 @@ public class Gdb {
       });
 
       // Save a reference to the process and launch the writer thread
-      synchronized (this) {
-        myProcess = process;
-        myWriteThread = new Thread(new Runnable() {
-          @Override
-          public void run() {
-            processWriteQueue();
-          }
-        });
-        myWriteThread.start();
-      }
+      myProcess = process;
+      Thread writeThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          processWriteQueue();
+        }
+      });
+      myWriteThread = writeThread;
+      writeThread.start();
 
-      // Start listening for data
+      // Start listening for data. GDB output is read straight into the backing array of a reusable buffer which the
+      // lexer then scans in place
       GdbMiParser parser = new GdbMiParser();
-      byte[] buffer = new byte[4096];
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
       int bytes;
-      while ((bytes = stream.read(buffer)) != -1) {
+      while ((bytes = stream.read(buffer.array(), 0, buffer.capacity())) != -1) {
+        buffer.limit(bytes);
+        buffer.position(0);
+
         // Process the data
         try {
-          parser.process(buffer, bytes);
+          parser.process(buffer);
         }
         catch (IllegalArgumentException ex) {
           LOG.error("GDB/MI parsing error. Current buffer contents: \"" +
-                      new String(buffer, 0, bytes) + "\"", ex);
+                      new String(buffer.array(), 0, bytes, ourCharset) + "\"", ex);
           myListener.onGdbError(ex);
           return;
         }
@@ -316,66 +902,96 @@ public class Gdb {
   }
 
   /**
-   * Thread function for processing the write queue.
+   * Thread function for processing the write queue. All commands queued at the time are sent in one write, as long as
+   * no more than MAX_COMMANDS_IN_FLIGHT commands are waiting for a response; the thread parks while there is nothing to
+   * send and is woken up by new commands and by responses.
    */
   private void processWriteQueue() {
     try {
-      OutputStream stream;
-      List<CommandData> queuedCommands = new ArrayList<CommandData>();
-      while (true) {
-        synchronized (this) {
-          // Wait for some data to process
-          while (myQueuedCommands.isEmpty()) {
-            wait();
-          }
-
-          // Exit cleanly if we are stopping
-          if (myStopping) {
-            return;
+      OutputStream stream = myProcess.getOutputStream();
+      StringBuilder sb = new StringBuilder();
+      while (!myStopping) {
+        // While a batch is active only its commands are sent, one at a time
+        if (myActiveBatch != null && myActiveBatch.isDone()) {
+          myActiveBatch = null;
+        }
+        if (myActiveBatch != null) {
+          CommandData next = myActiveBatch.takeNext();
+          if (next != null) {
+            appendCommand(sb, next);
           }
-
-          // Do the processing we need before dropping out of synchronised mode
-          stream = myProcess.getOutputStream();
-
-          // Insert the commands into the pending queue
-          long token = myToken;
-          for (CommandData command : myQueuedCommands) {
-            myPendingCommands.put(token++, command);
+        }
+        else {
+          // Take as many commands as the in-flight limit allows. Commands are registered as pending before they are
+          // written, so the reader thread always finds them
+          CommandData command;
+          while (myCommandsInFlight.get() < MAX_COMMANDS_IN_FLIGHT && (command = myQueuedCommands.poll()) != null) {
+            if (command.batch != null) {
+              // Commands taken before the batch are written first
+              myActiveBatch = command.batch;
+              CommandData next = myActiveBatch.takeNext();
+              if (next != null) {
+                appendCommand(sb, next);
+              }
+              break;
+            }
+            if (command.requester != null && command.requester.isObsolete()) {
+              if (command.callback != null) {
+                GdbErrorEvent cancelled = new GdbErrorEvent();
+                cancelled.message = "Cancelled";
+                command.callback.onGdbCommandCompleted(cancelled);
+              }
+              continue;
+            }
+            appendCommand(sb, command);
           }
-
-          // Swap the queues
-          List<CommandData> tmp = queuedCommands;
-          queuedCommands = myQueuedCommands;
-          myQueuedCommands = tmp;
         }
 
-        // Send the queued commands to GDB
-        StringBuilder sb = new StringBuilder();
-        for (CommandData command : queuedCommands) {
-          // Construct the message
-          long token = myToken++;
-          myListener.onGdbCommandSent(command.command, token);
-
-          sb.append(token);
-          sb.append(command.command);
-          sb.append("\r\n");
+        // Wait for more commands or responses if there is nothing to send
+        if (sb.length() == 0) {
+          LockSupport.park(this);
+          if (Thread.interrupted()) {
+            return;
+          }
+          continue;
         }
-        queuedCommands.clear();
 
         // Send the messages
         byte[] message = sb.toString().getBytes(ourCharset);
+        sb.setLength(0);
         stream.write(message);
         stream.flush();
       }
     }
-    catch (InterruptedException ex) {
-      // We are exiting
-    }
     catch (Throwable ex) {
       myListener.onGdbError(ex);
     }
   }
 
+  /**
+   * Registers the given command as pending and appends it to the data to write. Only called by the writer thread.
+   */
+  private void appendCommand(@NotNull StringBuilder sb, @NotNull CommandData command) {
+    long token = myToken++;
+    myCommandsInFlight.incrementAndGet();
+    myPendingCommands.put(token, command);
+    myListener.onGdbCommandSent(command.command, token);
+
+    sb.append(token);
+    sb.append(command.command);
+    sb.append("\r\n");
+  }
+
+  /**
+   * Wakes up the writer thread if it has been started.
+   */
+  private void wakeUpWriter() {
+    Thread writeThread = myWriteThread;
+    if (writeThread != null) {
+      LockSupport.unpark(writeThread);
+    }
+  }
+
   /**
    * Handles the given GDB/MI record.
    *
@@ -428,10 +1044,13 @@ public class Gdb {
     CommandData pendingCommand = null;
     String commandType = null;
     if (record.userToken != null) {
-      synchronized (this) {
-        pendingCommand = myPendingCommands.remove(record.userToken);
-      }
+      pendingCommand = myPendingCommands.remove(record.userToken);
       if (pendingCommand != null) {
+        // Let the writer send commands held back by the in-flight limit
+        if (myCommandsInFlight.decrementAndGet() == MAX_COMMANDS_IN_FLIGHT - 1 && !myQueuedCommands.isEmpty()) {
+          wakeUpWriter();
+        }
+
         // Get the command type
         int separatorIndex = pendingCommand.command.indexOf(' ');
         commandType = separatorIndex == -1 ? pendingCommand.command :
@@ -442,6 +1061,14 @@ public class Gdb {
     // Process the event into something more useful
     GdbEvent event = GdbMiMessageConverter.processRecord(record, commandType);
     if (event != null) {
+      // Forget stacks that are stale before the listener asks for new ones
+      if (event instanceof GdbStoppedEvent) {
+        onGdbStopped((GdbStoppedEvent)event);
+      }
+      else if (event instanceof GdbThreadExitedEvent && ((GdbThreadExitedEvent)event).threadId != null) {
+        myStacks.remove(((GdbThreadExitedEvent)event).threadId);
+      }
+
       // Notify the listener
       myListener.onGdbEventReceived(event);
       if (pendingCommand != null && pendingCommand.callback != null) {
@@ -451,108 +1078,58 @@ public class Gdb {
   }
 
   /**
-   * Callback function for when GDB has responded to our stack variables request.
-   *
-   * @param event    The event.
-   * @param thread   The thread on which the frame resides.
-   * @param frame    The frame number.
-   * @param callback The user-provided callback function.
+   * Forgets the cached stacks of the stopped threads unless they only stepped. A step leaves the bottom of a stack
+   * alone, any other stop may follow a run of arbitrary length.
    */
-  private void onGdbVariablesReady(GdbEvent event, int thread, int frame,
-                                   @NotNull final GdbEventCallback callback) {
-    if (event instanceof GdbErrorEvent) {
-      callback.onGdbCommandCompleted(event);
-      return;
-    }
-    if (!(event instanceof GdbVariables)) {
-      GdbErrorEvent errorEvent = new GdbErrorEvent();
-      errorEvent.message = "Unexpected data received from GDB";
-      callback.onGdbCommandCompleted(errorEvent);
-      LOG.warn("Unexpected event " + event + " received from -stack-list-variables " +
-                 "request");
+  private void onGdbStopped(@NotNull GdbStoppedEvent event) {
+    if (event.reason == GdbStoppedEvent.Reason.EndSteppingRange || event.reason == GdbStoppedEvent.Reason.FunctionFinished) {
       return;
     }
-
-    // Create variable objects for each of the variables if we haven't done so already
-    final GdbVariables variables = (GdbVariables)event;
-    for (final String variable : variables.variables.keySet()) {
-      GdbVariableObject variableObject = myVariableObjectsByExpression.get(variable);
-      if (variableObject == null) {
-        String command = "-var-create --thread " + thread + " --frame " + frame + " - @ " +
-                         variable;
-        sendCommand(command, new GdbEventCallback() {
-          @Override
-          public void onGdbCommandCompleted(GdbEvent event) {
-            onGdbNewVariableObjectReady(event, variable, callback);
-          }
-        });
+    if (event.stoppedThreads != null) {
+      for (Integer thread : event.stoppedThreads) {
+        myStacks.remove(thread);
       }
     }
-
-    // Update any existing variable objects
-    sendCommand("-var-update --thread " + thread + " --frame " + frame + " --all-values *",
-                new GdbEventCallback() {
-                  @Override
-                  public void onGdbCommandCompleted(GdbEvent event) {
-                    onGdbVariableObjectsUpdated(event, variables.variables.keySet(), callback);
-                  }
-                });
+    else {
+      myStacks.clear();
+    }
   }
 
   /**
    * Callback function for when GDB has responded to our new variable object request.
    *
    * @param event      The event.
+   * @param thread     The thread the variable object was created in.
+   * @param frame      The frame the variable object was created in.
    * @param expression The expression used to create the variable object.
-   * @param callback   The user-provided callback function.
    */
-  private void onGdbNewVariableObjectReady(GdbEvent event, String expression,
-                                           @NotNull GdbEventCallback callback) {
-    if (event instanceof GdbErrorEvent) {
-      callback.onGdbCommandCompleted(event);
-      return;
-    }
+  private void onGdbNewVariableObjectReady(GdbEvent event, int thread, int frame, String expression) {
     if (!(event instanceof GdbVariableObject)) {
-      GdbErrorEvent errorEvent = new GdbErrorEvent();
-      errorEvent.message = "Unexpected data received from GDB";
-      callback.onGdbCommandCompleted(errorEvent);
       LOG.warn("Unexpected event " + event + " received from -var-create request");
       return;
     }
 
     GdbVariableObject variableObject = (GdbVariableObject)event;
     if (variableObject.name == null) {
-      GdbErrorEvent errorEvent = new GdbErrorEvent();
-      errorEvent.message = "Unexpected data received from GDB";
-      callback.onGdbCommandCompleted(errorEvent);
       LOG.warn("Variable object returned by GDB does not have a name");
       return;
     }
 
     // Save the new variable object
     variableObject.expression = expression;
-    myVariableObjectsByExpression.put(expression, variableObject);
-    myVariableObjectsByName.put(variableObject.name, variableObject);
+    for (GdbVariableObject evicted : myVariableObjects.put(thread, frame, expression, variableObject)) {
+      deleteVariableObject(evicted);
+    }
   }
 
   /**
    * Callback function for when GDB has responded to our variable objects update request.
    *
-   * @param event     The event.
-   * @param variables The variables the user requested.
-   * @param callback  The user-provided callback function.
+   * @param event The event.
    */
-  private void onGdbVariableObjectsUpdated(GdbEvent event, @NotNull Set<String> variables,
-                                           @NotNull GdbEventCallback callback) {
-    if (event instanceof GdbErrorEvent) {
-      callback.onGdbCommandCompleted(event);
-      return;
-    }
+  private void onGdbVariableObjectsUpdated(GdbEvent event) {
     if (!(event instanceof GdbVariableObjectChanges)) {
-      GdbErrorEvent errorEvent = new GdbErrorEvent();
-      errorEvent.message = "Unexpected data received from GDB";
-      callback.onGdbCommandCompleted(errorEvent);
-      LOG.warn("Unexpected event " + event + " received from -var-create request");
+      LOG.warn("Unexpected event " + event + " received from -var-update request");
       return;
     }
 
@@ -565,7 +1142,7 @@ public class Gdb {
           continue;
         }
 
-        GdbVariableObject variableObject = myVariableObjectsByName.get(change.name);
+        GdbVariableObject variableObject = myVariableObjects.getByName(change.name);
         if (variableObject == null) {
           LOG.warn("Received a GDB variable object change for a variable object " +
                      "that does not exist");
@@ -585,8 +1162,10 @@ public class Gdb {
             break;
 
           default:
-            // TODO: Delete the variable object
+            // The variable object will never be valid again
             variableObject.value = null;
+            myVariableObjects.remove(variableObject.name);
+            deleteVariableObject(variableObject);
         }
 
         // Set the new type
@@ -595,18 +1174,22 @@ public class Gdb {
         }
       }
     }
+  }
 
-    // Construct the list of variable object the user requested
+  /**
+   * Constructs the list of variable objects of the given expressions in the given frame.
+   */
+  @NotNull
+  private GdbVariableObjects collectVariableObjects(int thread, int frame, @NotNull Collection<String> expressions) {
     GdbVariableObjects list = new GdbVariableObjects();
     list.objects = new ArrayList<GdbVariableObject>();
-    for (String expression : variables) {
-      GdbVariableObject object = myVariableObjectsByExpression.get(expression);
+    for (String expression : expressions) {
+      GdbVariableObject object = myVariableObjects.get(thread, frame, expression);
       if (object != null) {
         list.objects.add(object);
       }
     }
-
-    callback.onGdbCommandCompleted(list);
+    return list;
   }
 
   /**
@@ -627,10 +1210,7 @@ public class Gdb {
     // Save the list
     GdbFeatures features = (GdbFeatures)event;
     if (features.features != null) {
-      Set<String> capabilities = new HashSet<String>(features.features);
-      synchronized (this) {
-        myCapabilities = capabilities;
-      }
+      myCapabilities = new HashSet<String>(features.features);
     }
   }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb;
+
+import com.goide.debugger.gdb.messages.GdbStackFrame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Last known stacks of threads. Stepping usually changes only the top of the stack, so a new stack is assembled from a
+ * fresh prefix and the bottom of the cached stack once both agree on all the frames where they overlap. Stacks are
+ * forgotten when their thread stops for another reason than a step or exits.
+ */
+class GdbStackCache {
+  private final Map<Integer, List<GdbStackFrame>> myStacks = new HashMap<Integer, List<GdbStackFrame>>();
+
+  /**
+   * Returns the last known stack of the given thread.
+   */
+  @Nullable
+  synchronized List<GdbStackFrame> get(int thread) {
+    return myStacks.get(thread);
+  }
+
+  synchronized void put(int thread, @NotNull List<GdbStackFrame> stack) {
+    myStacks.put(thread, stack);
+  }
+
+  synchronized void remove(int thread) {
+    myStacks.remove(thread);
+  }
+
+  synchronized void clear() {
+    myStacks.clear();
+  }
+
+  /**
+   * Assembles the stack of a thread from the top frames listed now and the stack listed before.
+   *
+   * @param cached The stack listed before.
+   * @param prefix The top frames of the stack, at most the given depth.
+   * @param depth  The depth of the stack.
+   * @return The stack, or null if the cached stack cannot be reused and the whole stack has to be listed.
+   */
+  @Nullable
+  static List<GdbStackFrame> merge(@NotNull List<GdbStackFrame> cached, @NotNull List<GdbStackFrame> prefix, int depth) {
+    if (prefix.size() >= depth) {
+      // The prefix is the whole stack
+      return prefix;
+    }
+    // The bottom of the stack is shared: frame i of the new stack is frame i - shift of the cached one
+    int shift = depth - cached.size();
+    if (prefix.size() - shift > cached.size()) {
+      return null;
+    }
+    // The new top frame and the old one may have moved on, all other overlapping frames are callers that must be the same
+    int first = Math.max(1, shift + 1);
+    if (first >= prefix.size()) {
+      return null;
+    }
+    for (int i = first; i < prefix.size(); i++) {
+      if (!isSameFrame(prefix.get(i), cached.get(i - shift))) {
+        return null;
+      }
+    }
+
+    List<GdbStackFrame> stack = new ArrayList<GdbStackFrame>(depth);
+    stack.addAll(prefix);
+    for (int i = prefix.size(); i < depth; i++) {
+      GdbStackFrame frame = cached.get(i - shift);
+      stack.add(shift == 0 ? frame : copyFrame(frame, i));
+    }
+    return stack;
+  }
+
+  private static boolean isSameFrame(@NotNull GdbStackFrame a, @NotNull GdbStackFrame b) {
+    return a.address != null && a.address.equals(b.address) &&
+           (a.function == null ? b.function == null : a.function.equals(b.function));
+  }
+
+  @NotNull
+  private static GdbStackFrame copyFrame(@NotNull GdbStackFrame frame, int level) {
+    GdbStackFrame copy = new GdbStackFrame();
+    copy.level = level;
+    copy.address = frame.address;
+    copy.function = frame.function;
+    copy.arguments = frame.arguments;
+    copy.fileRelative = frame.fileRelative;
+    copy.fileAbsolute = frame.fileAbsolute;
+    copy.line = frame.line;
+    copy.module = frame.module;
+    return copy;
+  }
+}
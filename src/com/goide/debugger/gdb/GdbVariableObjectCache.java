@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb;
+
+import com.goide.debugger.gdb.messages.GdbVariableObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Variable objects created by Gdb, keyed by the thread, frame and expression they were created for. The cache holds a
+ * bounded number of objects: adding an object beyond the capacity evicts the least recently used ones, which the caller
+ * is expected to delete in GDB.
+ */
+class GdbVariableObjectCache {
+  // Scope of a variable object
+  private static class Key {
+    final int thread;
+    final int frame;
+    @NotNull final String expression;
+
+    Key(int thread, int frame, @NotNull String expression) {
+      this.thread = thread;
+      this.frame = frame;
+      this.expression = expression;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key)o;
+      return thread == key.thread && frame == key.frame && expression.equals(key.expression);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * thread + frame) + expression.hashCode();
+    }
+  }
+
+  private final int myCapacity;
+  // Variable objects in access order, least recently used first
+  private final LinkedHashMap<Key, GdbVariableObject> myObjects = new LinkedHashMap<Key, GdbVariableObject>(16, 0.75f, true);
+  // Lookup by GDB name; kept apart from myObjects so that it does not change the access order
+  private final Map<String, Key> myKeysByName = new HashMap<String, Key>();
+  private final Map<String, GdbVariableObject> myObjectsByName = new HashMap<String, GdbVariableObject>();
+
+  GdbVariableObjectCache(int capacity) {
+    myCapacity = capacity;
+  }
+
+  /**
+   * Returns the variable object of the given expression in the given frame and marks it as recently used.
+   */
+  @Nullable
+  synchronized GdbVariableObject get(int thread, int frame, @NotNull String expression) {
+    return myObjects.get(new Key(thread, frame, expression));
+  }
+
+  /**
+   * Returns the variable object with the given GDB name without changing its recency.
+   */
+  @Nullable
+  synchronized GdbVariableObject getByName(@NotNull String name) {
+    return myObjectsByName.get(name);
+  }
+
+  /**
+   * Returns the variable objects created in the given frame.
+   */
+  @NotNull
+  synchronized List<GdbVariableObject> getFrameObjects(int thread, int frame) {
+    List<GdbVariableObject> result = new ArrayList<GdbVariableObject>();
+    for (Map.Entry<Key, GdbVariableObject> entry : myObjects.entrySet()) {
+      if (entry.getKey().thread == thread && entry.getKey().frame == frame) {
+        result.add(entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds a variable object with a non-null name.
+   *
+   * @return The objects evicted to stay within the capacity, including a replaced object of the same expression.
+   */
+  @NotNull
+  synchronized List<GdbVariableObject> put(int thread, int frame, @NotNull String expression,
+                                           @NotNull GdbVariableObject object) {
+    List<GdbVariableObject> evicted = new ArrayList<GdbVariableObject>();
+    Key key = new Key(thread, frame, expression);
+    GdbVariableObject replaced = myObjects.put(key, object);
+    if (replaced != null && replaced != object) {
+      removeName(replaced.name);
+      evicted.add(replaced);
+    }
+    myKeysByName.put(object.name, key);
+    myObjectsByName.put(object.name, object);
+
+    Iterator<Map.Entry<Key, GdbVariableObject>> iterator = myObjects.entrySet().iterator();
+    while (myObjects.size() > myCapacity && iterator.hasNext()) {
+      GdbVariableObject eldest = iterator.next().getValue();
+      iterator.remove();
+      removeName(eldest.name);
+      evicted.add(eldest);
+    }
+    return evicted;
+  }
+
+  /**
+   * Removes the variable object with the given GDB name.
+   *
+   * @return The removed object, or null if there was none.
+   */
+  @Nullable
+  synchronized GdbVariableObject remove(@NotNull String name) {
+    Key key = removeName(name);
+    return key != null ? myObjects.remove(key) : null;
+  }
+
+  @Nullable
+  private Key removeName(@NotNull String name) {
+    myObjectsByName.remove(name);
+    return myKeysByName.remove(name);
+  }
+
+  synchronized int size() {
+    return myObjects.size();
+  }
+}
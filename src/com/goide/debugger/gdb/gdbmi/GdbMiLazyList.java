@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb.gdbmi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Items of a tuple or a list which are parsed from the raw GDB/MI text when the list is accessed for the first time.
+ * The parser creates these for tuples and lists nested in result values, so the parts of large records that are never
+ * read, e.g. most frames of a deep stack or the elements of a long thread list, are lexed once and never turned into objects.
+ */
+class GdbMiLazyList<T> extends AbstractList<T> {
+  @NotNull private static final Charset ourCharset = Charset.forName("US-ASCII");
+  @NotNull private static final byte[] ourRecordPrefix = "^done,v=".getBytes(ourCharset);
+  @NotNull private static final byte[] ourRecordSuffix = "\r\n".getBytes(ourCharset);
+
+  // The raw tuple or list including the brackets; released once parsed
+  @Nullable private byte[] myText;
+  @Nullable private volatile List<T> myItems;
+
+  GdbMiLazyList(@NotNull byte[] text) {
+    myText = text;
+  }
+
+  @Override
+  public T get(int index) {
+    return getItems().get(index);
+  }
+
+  @Override
+  public int size() {
+    return getItems().size();
+  }
+
+  /**
+   * Indicates whether the items have been parsed already.
+   */
+  boolean isParsed() {
+    return myItems != null;
+  }
+
+  @NotNull
+  private List<T> getItems() {
+    List<T> items = myItems;
+    if (items == null) {
+      synchronized (this) {
+        items = myItems;
+        if (items == null) {
+          assert myText != null;
+          items = parse(myText);
+          myItems = items;
+          myText = null;
+        }
+      }
+    }
+    return items;
+  }
+
+  @NotNull
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> parse(@NotNull byte[] text) {
+    // Wrap the value into a result record and parse it eagerly
+    GdbMiParser parser = new GdbMiParser(false);
+    parser.process(ourRecordPrefix);
+    parser.process(text);
+    parser.process(ourRecordSuffix);
+    GdbMiValue value = ((GdbMiResultRecord)parser.getRecords().get(0)).results.get(0).value;
+    if (value.type == GdbMiValue.Type.Tuple) {
+      return (List<T>)value.tuple;
+    }
+    return (List<T>)(value.list.type == GdbMiList.Type.Results ? value.list.results : value.list.values);
+  }
+}
@@ -17,9 +17,10 @@
 package com.goide.debugger.gdb.gdbmi;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -48,8 +49,15 @@ public class GdbMiLexer {
   // State of the lexer FSM
   @NotNull private FsmState myState = FsmState.Idle;
 
-  // Temporary store for partially read tokens
-  @Nullable private StringBuilder myPartialToken;
+  // Temporary store for partially read tokens, reused for all tokens
+  @NotNull private char[] myPartialToken = new char[256];
+  private int myPartialLength;
+
+  // Index in the current buffer where the string fragment being read starts, or -1
+  private int myFragmentStart = -1;
+
+  // Number of bytes processed before the current buffer
+  private long myOffset;
 
   // List of unprocessed tokens
   @NotNull private final List<GdbMiToken> myTokens = new ArrayList<GdbMiToken>();
@@ -72,7 +80,20 @@ public class GdbMiLexer {
    * @param length Number of bytes from data to process.
    */
   public void process(byte[] data, int length) {
-    for (int i = 0; i != length; ++i) {
+    process(ByteBuffer.wrap(data, 0, length));
+  }
+
+  /**
+   * Processes the bytes between the position and the limit of the given buffer and moves its position to the limit.
+   * String fragments are taken from the buffer directly, only a fragment that is split between two buffers is copied.
+   *
+   * @param buffer Data read from the GDB process.
+   */
+  public void process(@NotNull ByteBuffer buffer) {
+    int limit = buffer.limit();
+    long base = myOffset - buffer.position();
+    for (int i = buffer.position(); i != limit; ++i) {
+      byte c = buffer.get(i);
       switch (myState) {
         case Idle:
           // Legal tokens:
@@ -81,7 +102,7 @@ public class GdbMiLexer {
           // Identifier (string)
           // CRLF
           // "(gdb)"
-          switch (data[i]) {
+          switch (c) {
             case '0':
             case '1':
             case '2':
@@ -92,8 +113,8 @@ public class GdbMiLexer {
             case '7':
             case '8':
             case '9':
-              myPartialToken = new StringBuilder();
-              myPartialToken.append((char)data[i]);
+              resetToken();
+              appendToken(c);
               myState = FsmState.UserToken;
               break;
 
@@ -131,24 +152,24 @@ public class GdbMiLexer {
 
             case '"':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringPrefix));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case '{':
-              myTokens.add(new GdbMiToken(GdbMiToken.Type.TuplePrefix));
+              myTokens.add(new GdbMiToken(GdbMiToken.Type.TuplePrefix, base + i));
               break;
 
             case '}':
-              myTokens.add(new GdbMiToken(GdbMiToken.Type.TupleSuffix));
+              myTokens.add(new GdbMiToken(GdbMiToken.Type.TupleSuffix, base + i));
               break;
 
             case '[':
-              myTokens.add(new GdbMiToken(GdbMiToken.Type.ListPrefix));
+              myTokens.add(new GdbMiToken(GdbMiToken.Type.ListPrefix, base + i));
               break;
 
             case ']':
-              myTokens.add(new GdbMiToken(GdbMiToken.Type.ListSuffix));
+              myTokens.add(new GdbMiToken(GdbMiToken.Type.ListSuffix, base + i));
               break;
 
             case '(':
@@ -157,7 +178,7 @@ public class GdbMiLexer {
 
             case '\r':
             case '\n':
-              myTokens.add(new GdbMiToken(GdbMiToken.Type.NewLine));
+              myTokens.add(new GdbMiToken(GdbMiToken.Type.NewLine, base + i));
               myState = FsmState.CrLf;
               break;
 
@@ -214,13 +235,13 @@ public class GdbMiLexer {
             case 'X':
             case 'Y':
             case 'Z':
-              myPartialToken = new StringBuilder();
-              myPartialToken.append((char)data[i]);
+              resetToken();
+              appendToken(c);
               myState = FsmState.Identifier;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
@@ -228,7 +249,7 @@ public class GdbMiLexer {
           // Legal tokens:
           // User token (digits)
           // Anything else is reprocessed
-          switch (data[i]) {
+          switch (c) {
             case '0':
             case '1':
             case '2':
@@ -239,12 +260,12 @@ public class GdbMiLexer {
             case '7':
             case '8':
             case '9':
-              myPartialToken.append((char)data[i]);
+              appendToken(c);
               break;
 
             default:
               myTokens.add(new GdbMiToken(GdbMiToken.Type.UserToken,
-                                          myPartialToken.toString()));
+                                          takeToken()));
               myState = FsmState.Idle;
               --i;
           }
@@ -256,23 +277,21 @@ public class GdbMiLexer {
           // "=" is handled specially as it means something else if not used after an
           // identifier
           // Anything else is reprocessed
-          if (data[i] == '_' || data[i] == '-' ||
-              (data[i] >= '0' && data[i] <= '9') ||
-              (data[i] >= 'a' && data[i] <= 'z') ||
-              (data[i] >= 'A' && data[i] <= 'Z')) {
-            myPartialToken.append((char)data[i]);
+          if (c == '_' || c == '-' ||
+              (c >= '0' && c <= '9') ||
+              (c >= 'a' && c <= 'z') ||
+              (c >= 'A' && c <= 'Z')) {
+            appendToken(c);
           }
-          else if (data[i] == '=') {
+          else if (c == '=') {
             myTokens.add(new GdbMiToken(GdbMiToken.Type.Identifier,
-                                        myPartialToken.toString()));
+                                        takeToken()));
             myTokens.add(new GdbMiToken(GdbMiToken.Type.Equals));
-            myPartialToken = null;
             myState = FsmState.Idle;
           }
           else {
             myTokens.add(new GdbMiToken(GdbMiToken.Type.Identifier,
-                                        myPartialToken.toString()));
-            myPartialToken = null;
+                                        takeToken()));
             myState = FsmState.Idle;
             --i;
           }
@@ -295,109 +314,101 @@ public class GdbMiLexer {
           //   \v
           //   \[octal digits]
           //   \x[hexadecimal digits]
-          switch (data[i]) {
+          switch (c) {
             case '"':
-              if (myPartialToken.length() != 0) {
-                myTokens.add(new GdbMiToken(GdbMiToken.Type.StringFragment,
-                                            myPartialToken.toString()));
-              }
+              flushFragment(buffer, i);
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringSuffix));
-              myPartialToken = null;
               myState = FsmState.Idle;
               break;
 
             case '\\':
-              if (myPartialToken.length() != 0) {
-                myTokens.add(new GdbMiToken(GdbMiToken.Type.StringFragment,
-                                            myPartialToken.toString()));
-              }
+              flushFragment(buffer, i);
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapePrefix));
               myState = FsmState.CStringEscape;
-              myPartialToken = null;
               break;
 
             case '\r':
             case '\n':
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
 
             default:
-              myPartialToken.append((char)data[i]);
+              if (myFragmentStart < 0) myFragmentStart = i;
           }
           break;
 
         case CStringEscape:
           // Legal tokens:
           // "'", """, "?", "\", "a", "b", "f", "n", "r", "t", "v", "x", 0-7
-          switch (data[i]) {
+          switch (c) {
             case '\'':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeApostrophe));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case '"':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeQuote));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case '?':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeQuestion));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case '\\':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeBackslash));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'a':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeAlarm));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'b':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeBackspace));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'f':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeFormFeed));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'n':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeNewLine));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'r':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeCarriageReturn));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 't':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeHorizontalTab));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'v':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeVerticalTab));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CString;
               break;
 
             case 'x':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeHexPrefix));
-              myPartialToken = new StringBuilder();
+              resetToken();
               myState = FsmState.CStringEscapeHexHead;
               break;
 
@@ -409,27 +420,27 @@ public class GdbMiLexer {
             case '5':
             case '6':
             case '7':
-              myPartialToken = new StringBuilder();
-              myPartialToken.append((char)data[i]);
+              resetToken();
+              appendToken(c);
               myState = FsmState.CStringEscapeOct1;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
         case CStringEscapeHexHead:
           // Legal tokens:
           // Hex digits: 0-9, a-f, A-F
-          if ((data[i] >= '0' && data[i] <= '9') ||
-              (data[i] >= 'a' && data[i] <= 'f') ||
-              (data[i] >= 'A' && data[i] <= 'F')) {
-            myPartialToken.append((char)data[i]);
+          if ((c >= '0' && c <= '9') ||
+              (c >= 'a' && c <= 'f') ||
+              (c >= 'A' && c <= 'F')) {
+            appendToken(c);
             myState = FsmState.CStringEscapeHex;
           }
           else {
-            throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+            throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
@@ -437,15 +448,15 @@ public class GdbMiLexer {
           // Legal tokens:
           // Hex digits: 0-9, a-f, A-F
           // Else reprocess as normal C string character
-          if ((data[i] >= '0' && data[i] <= '9') ||
-              (data[i] >= 'a' && data[i] <= 'f') ||
-              (data[i] >= 'A' && data[i] <= 'F')) {
-            myPartialToken.append((char)data[i]);
+          if ((c >= '0' && c <= '9') ||
+              (c >= 'a' && c <= 'f') ||
+              (c >= 'A' && c <= 'F')) {
+            appendToken(c);
           }
           else {
             myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeHexValue,
-                                        myPartialToken.toString()));
-            myPartialToken = new StringBuilder();
+                                        takeToken()));
+            resetToken();
             myState = FsmState.CString;
             --i;
           }
@@ -455,14 +466,14 @@ public class GdbMiLexer {
           // Legal tokens:
           // Oct digits: 0-7
           // Else reprocess as normal C string character
-          if (data[i] >= '0' && data[i] <= '7') {
-            myPartialToken.append((char)data[i]);
+          if (c >= '0' && c <= '7') {
+            appendToken(c);
             myState = FsmState.CStringEscapeOct2;
           }
           else {
             myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeOctValue,
-                                        myPartialToken.toString()));
-            myPartialToken = new StringBuilder();
+                                        takeToken()));
+            resetToken();
             myState = FsmState.CString;
             --i;
           }
@@ -472,71 +483,71 @@ public class GdbMiLexer {
           // Legal tokens:
           // Oct digits: 0-7
           // Else reprocess as normal C string character
-          if (data[i] >= '0' && data[i] <= '7') {
-            myPartialToken.append((char)data[i]);
+          if (c >= '0' && c <= '7') {
+            appendToken(c);
           }
           else {
             --i;
           }
           myTokens.add(new GdbMiToken(GdbMiToken.Type.StringEscapeOctValue,
-                                      myPartialToken.toString()));
-          myPartialToken = new StringBuilder();
+                                      takeToken()));
+          resetToken();
           myState = FsmState.CString;
           break;
 
         case GdbSuffix1:
           // Read so far: "("
-          switch (data[i]) {
+          switch (c) {
             case 'g':
               myState = FsmState.GdbSuffix2;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
         case GdbSuffix2:
           // Read so far: "(g"
-          switch (data[i]) {
+          switch (c) {
             case 'd':
               myState = FsmState.GdbSuffix3;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
         case GdbSuffix3:
           // Read so far: "(gd"
-          switch (data[i]) {
+          switch (c) {
             case 'b':
               myState = FsmState.GdbSuffix4;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
         case GdbSuffix4:
           // Read so far: "(gdb"
-          switch (data[i]) {
+          switch (c) {
             case ')':
               myTokens.add(new GdbMiToken(GdbMiToken.Type.GdbSuffix));
               myState = FsmState.GdbSuffix5;
               break;
 
             default:
-              throw new IllegalArgumentException("Unexpected character: '" + data[i] + "'");
+              throw new IllegalArgumentException("Unexpected character: '" + c + "'");
           }
           break;
 
         case GdbSuffix5:
           // GDB seems to print a space here, even though the documentation doesn't mention
           // this. We just ignore it if it does
-          switch (data[i]) {
+          switch (c) {
             case ' ':
               myState = FsmState.Idle;
               break;
@@ -553,7 +564,7 @@ public class GdbMiLexer {
           // \n
           // If the character is not '\n' the state is changed to Idle and the character
           // reprocessed
-          switch (data[i]) {
+          switch (c) {
             case '\n':
               myState = FsmState.Idle;
               break;
@@ -569,5 +580,51 @@ public class GdbMiLexer {
           throw new IllegalArgumentException("Unexpected lexer FSM state: " + myState);
       }
     }
+    if (myState == FsmState.CString && myFragmentStart >= 0) {
+      appendSlice(buffer, myFragmentStart, limit);
+      myFragmentStart = -1;
+    }
+    myOffset += limit - buffer.position();
+    buffer.position(limit);
+  }
+
+  private void resetToken() {
+    myPartialLength = 0;
+    myFragmentStart = -1;
+  }
+
+  private void appendToken(byte c) {
+    if (myPartialLength == myPartialToken.length) {
+      myPartialToken = Arrays.copyOf(myPartialToken, myPartialToken.length * 2);
+    }
+    myPartialToken[myPartialLength++] = (char)c;
+  }
+
+  private void appendSlice(@NotNull ByteBuffer buffer, int start, int end) {
+    int length = myPartialLength + end - start;
+    if (length > myPartialToken.length) {
+      myPartialToken = Arrays.copyOf(myPartialToken, Math.max(length, myPartialToken.length * 2));
+    }
+    for (int i = start; i != end; ++i) {
+      myPartialToken[myPartialLength++] = (char)buffer.get(i);
+    }
+  }
+
+  @NotNull
+  private String takeToken() {
+    String result = new String(myPartialToken, 0, myPartialLength);
+    resetToken();
+    return result;
+  }
+
+  /**
+   * Emits the string fragment that ends before the given index, if any.
+   */
+  private void flushFragment(@NotNull ByteBuffer buffer, int end) {
+    if (myFragmentStart >= 0) appendSlice(buffer, myFragmentStart, end);
+    if (myPartialLength != 0) {
+      myTokens.add(new GdbMiToken(GdbMiToken.Type.StringFragment, takeToken()));
+    }
+    resetToken();
   }
 }
@@ -18,10 +18,12 @@ package com.goide.debugger.gdb.gdbmi;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Parser for GDB/MI output.
@@ -49,11 +51,15 @@ public class GdbMiParser {
     ListResultSeparator,       // Between items in a list of results
     ListResultItem,            // Ready to read a new item from a list of results
     StreamRecordSuffix,        // Ready to read a new line at the end of a stream record
-    MessageSuffix              // Ready to read a new line at the end of a message
+    MessageSuffix,             // Ready to read a new line at the end of a message
+    Skip                       // Skipping a nested tuple or list which is parsed lazily
   }
 
+  // Initial size of the buffer holding the raw text of the current record
+  static final int RAW_BUFFER_SIZE = 64 * 1024;
+
   // State of the parser FSM
-  private final Stack<FsmState> myState = new Stack<FsmState>();
+  private final ArrayStack<FsmState> myState = new ArrayStack<FsmState>();
 
   // Lexer
   private final GdbMiLexer myLexer = new GdbMiLexer();
@@ -61,17 +67,43 @@ public class GdbMiParser {
   // Partially processed record
   @Nullable private GdbMiResultRecord myResultRecord;
   @Nullable private GdbMiStreamRecord myStreamRecord;
-  @NotNull private final Stack<GdbMiValue> myValueStack = new Stack<GdbMiValue>();
+  @NotNull private final ArrayStack<GdbMiValue> myValueStack = new ArrayStack<GdbMiValue>();
   @Nullable private Long myRserToken;
   @Nullable private StringBuilder myBuilder;
 
   // List of unprocessed records
   @NotNull private final List<GdbMiRecord> myRecords = new ArrayList<GdbMiRecord>();
 
+  // Whether tuples and lists nested in result values are parsed lazily
+  private final boolean myLazy;
+
+  // Raw text of the records being parsed, kept for lazily parsed values; starts at myRawStart in the stream, and the
+  // text before myRawConsumed belongs to completed records
+  @NotNull private byte[] myRaw = new byte[0];
+  private int myRawLength;
+  private long myRawStart;
+  private long myRawConsumed;
+
+  // Nested tuple or list being skipped: bracket depth, offset of the opening bracket and the first token inside
+  private int mySkipDepth;
+  private long mySkipStart;
+  @Nullable private GdbMiToken.Type mySkipFirst;
+
   /**
    * Constructor.
    */
   public GdbMiParser() {
+    this(true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param lazy Whether tuples and lists nested in result values should be parsed when they are accessed rather than
+   *             when the record is read.
+   */
+  GdbMiParser(boolean lazy) {
+    myLazy = lazy;
     myState.push(FsmState.Idle);
   }
 
@@ -102,8 +134,22 @@ public class GdbMiParser {
    * @param length Number of bytes from data to process.
    */
   public void process(byte[] data, int length) {
+    process(ByteBuffer.wrap(data, 0, length));
+  }
+
+  /**
+   * Processes the bytes between the position and the limit of the given buffer and moves its position to the limit.
+   *
+   * @param buffer Data read from the GDB process.
+   */
+  public void process(@NotNull ByteBuffer buffer) {
+    // Keep the raw text for lazily parsed values
+    if (myLazy) {
+      appendRaw(buffer);
+    }
+
     // Run the data through the lexer first
-    myLexer.process(data, length);
+    myLexer.process(buffer);
 
     // Parse the data
     List<GdbMiToken> tokens = myLexer.getTokens();
@@ -112,7 +158,7 @@ public class GdbMiParser {
         throw new IllegalArgumentException("Mismatched tuple or list detected");
       }
 
-      switch (myState.lastElement()) {
+      switch (myState.peek()) {
         case Idle:
           // Legal tokens:
           // UserToken
@@ -309,20 +355,28 @@ public class GdbMiParser {
           // ListPrefix
           switch (token.type) {
             case StringPrefix:
-              myValueStack.lastElement().type = GdbMiValue.Type.String;
+              myValueStack.peek().type = GdbMiValue.Type.String;
               myBuilder = new StringBuilder();
               setState(FsmState.String);
               break;
 
             case TuplePrefix:
-              myValueStack.lastElement().type = GdbMiValue.Type.Tuple;
-              myValueStack.lastElement().tuple = new ArrayList<GdbMiResult>();
+              myValueStack.peek().type = GdbMiValue.Type.Tuple;
+              if (startSkip(token)) {
+                setState(FsmState.Skip);
+                break;
+              }
+              myValueStack.peek().tuple = new ArrayList<GdbMiResult>();
               setState(FsmState.Tuple);
               break;
 
             case ListPrefix:
-              myValueStack.lastElement().type = GdbMiValue.Type.List;
-              myValueStack.lastElement().list = new GdbMiList();
+              myValueStack.peek().type = GdbMiValue.Type.List;
+              if (startSkip(token)) {
+                setState(FsmState.Skip);
+                break;
+              }
+              myValueStack.peek().list = new GdbMiList();
               setState(FsmState.List);
               break;
 
@@ -482,13 +536,12 @@ public class GdbMiParser {
               // two characters to prevent Integer.parseInt from throwing an exception if it
               // is too long
             {
-              int tokenLen = token.value.length();
+              String hex = token.value;
+              int tokenLen = hex.length();
               if (tokenLen > 2) {
-                token.value = token.value.substring(tokenLen - 2, tokenLen);
+                hex = hex.substring(tokenLen - 2, tokenLen);
               }
-            }
-            {
-              int ch = Integer.parseInt(token.value, 16);
+              int ch = Integer.parseInt(hex, 16);
               myBuilder.append((char)ch);
             }
             setState(FsmState.String);
@@ -511,7 +564,7 @@ public class GdbMiParser {
 
             case Identifier: {
               GdbMiResult result = new GdbMiResult(token.value);
-              myValueStack.lastElement().tuple.add(result);
+              myValueStack.peek().tuple.add(result);
               myValueStack.push(result.value);
             }
             myState.pop();
@@ -549,7 +602,7 @@ public class GdbMiParser {
           switch (token.type) {
             case Identifier: {
               GdbMiResult result = new GdbMiResult(token.value);
-              myValueStack.lastElement().tuple.add(result);
+              myValueStack.peek().tuple.add(result);
               myValueStack.push(result.value);
             }
             myState.pop();
@@ -576,7 +629,7 @@ public class GdbMiParser {
               break;
 
             case StringPrefix: {
-              GdbMiList list = myValueStack.lastElement().list;
+              GdbMiList list = myValueStack.peek().list;
               list.type = GdbMiList.Type.Values;
               list.values = new ArrayList<GdbMiValue>();
               GdbMiValue value = new GdbMiValue(GdbMiValue.Type.String);
@@ -590,21 +643,25 @@ public class GdbMiParser {
             break;
 
             case TuplePrefix: {
-              GdbMiList list = myValueStack.lastElement().list;
+              GdbMiList list = myValueStack.peek().list;
               list.type = GdbMiList.Type.Values;
               list.values = new ArrayList<GdbMiValue>();
               GdbMiValue value = new GdbMiValue(GdbMiValue.Type.Tuple);
-              value.tuple = new ArrayList<GdbMiResult>();
               list.values.add(value);
               myValueStack.push(value);
             }
             myState.pop();
             myState.push(FsmState.ListValueSeparator);
+            if (startSkip(token)) {
+              myState.push(FsmState.Skip);
+              break;
+            }
+            myValueStack.peek().tuple = new ArrayList<GdbMiResult>();
             myState.push(FsmState.Tuple);
             break;
 
             case Identifier: {
-              GdbMiList list = myValueStack.lastElement().list;
+              GdbMiList list = myValueStack.peek().list;
               list.type = GdbMiList.Type.Results;
               list.results = new ArrayList<GdbMiResult>();
               GdbMiResult result = new GdbMiResult(token.value);
@@ -648,7 +705,7 @@ public class GdbMiParser {
           switch (token.type) {
             case StringPrefix: {
               GdbMiValue value = new GdbMiValue(GdbMiValue.Type.String);
-              myValueStack.lastElement().list.values.add(value);
+              myValueStack.peek().list.values.add(value);
               myValueStack.push(value);
             }
             myState.pop();
@@ -659,23 +716,31 @@ public class GdbMiParser {
 
             case TuplePrefix: {
               GdbMiValue value = new GdbMiValue(GdbMiValue.Type.Tuple);
-              value.tuple = new ArrayList<GdbMiResult>();
-              myValueStack.lastElement().list.values.add(value);
+              myValueStack.peek().list.values.add(value);
               myValueStack.push(value);
             }
             myState.pop();
             myState.push(FsmState.ListValueSeparator);
+            if (startSkip(token)) {
+              myState.push(FsmState.Skip);
+              break;
+            }
+            myValueStack.peek().tuple = new ArrayList<GdbMiResult>();
             myState.push(FsmState.Tuple);
             break;
 
             case ListPrefix: {
               GdbMiValue value = new GdbMiValue(GdbMiValue.Type.List);
-              value.list = new GdbMiList();
-              myValueStack.lastElement().list.values.add(value);
+              myValueStack.peek().list.values.add(value);
               myValueStack.push(value);
             }
             myState.pop();
             myState.push(FsmState.ListValueSeparator);
+            if (startSkip(token)) {
+              myState.push(FsmState.Skip);
+              break;
+            }
+            myValueStack.peek().list = new GdbMiList();
             myState.push(FsmState.List);
             break;
 
@@ -708,7 +773,7 @@ public class GdbMiParser {
           // Identifier
           switch (token.type) {
             case Identifier: {
-              GdbMiList list = myValueStack.lastElement().list;
+              GdbMiList list = myValueStack.peek().list;
               GdbMiResult result = new GdbMiResult(token.value);
               list.results.add(result);
               myValueStack.push(result.value);
@@ -751,14 +816,128 @@ public class GdbMiParser {
           }
           break;
 
+        case Skip:
+          // Legal tokens:
+          // Anything but NewLine; only brackets are counted
+          if (mySkipFirst == null) {
+            mySkipFirst = token.type;
+          }
+          switch (token.type) {
+            case TuplePrefix:
+            case ListPrefix:
+              ++mySkipDepth;
+              break;
+
+            case TupleSuffix:
+            case ListSuffix:
+              if (--mySkipDepth == 0) {
+                finishSkip(token);
+                myValueStack.pop();
+                myState.pop();
+              }
+              break;
+
+            case NewLine:
+              throw new IllegalArgumentException("Unexpected token of type " + token.type);
+
+            default:
+              break;
+          }
+          break;
+
         default:
           throw new IllegalArgumentException("Unexpected parser FSM state: " +
-                                             myState.lastElement());
+                                             myState.peek());
+      }
+
+      // The raw text of a completed record is dropped when more data is appended
+      if (token.type == GdbMiToken.Type.NewLine && myState.peek() == FsmState.Idle) {
+        myRawConsumed = token.offset + 1;
       }
     }
     tokens.clear();
   }
 
+  /**
+   * Starts skipping the tuple or list opened by the given token if it is nested in a result value and the parser is lazy.
+   * The value being read must be on top of the value stack.
+   *
+   * @param token The opening bracket.
+   * @return Whether the value is skipped and parsed lazily.
+   */
+  private boolean startSkip(@NotNull GdbMiToken token) {
+    if (!myLazy || myValueStack.size() < 2) {
+      return false;
+    }
+    mySkipDepth = 1;
+    mySkipStart = token.offset;
+    mySkipFirst = null;
+    return true;
+  }
+
+  /**
+   * Sets the contents of the skipped value on top of the value stack to a lazily parsed list.
+   *
+   * @param token The closing bracket.
+   */
+  private void finishSkip(@NotNull GdbMiToken token) {
+    GdbMiValue value = myValueStack.peek();
+    boolean empty = mySkipFirst == GdbMiToken.Type.TupleSuffix || mySkipFirst == GdbMiToken.Type.ListSuffix;
+    byte[] text = empty ? null : Arrays.copyOfRange(myRaw, (int)(mySkipStart - myRawStart), (int)(token.offset + 1 - myRawStart));
+    if (value.type == GdbMiValue.Type.Tuple) {
+      value.tuple = text == null ? new ArrayList<GdbMiResult>(0) : new GdbMiLazyList<GdbMiResult>(text);
+    }
+    else {
+      value.list = new GdbMiList();
+      if (text != null) {
+        if (mySkipFirst == GdbMiToken.Type.Identifier) {
+          value.list.type = GdbMiList.Type.Results;
+          value.list.results = new GdbMiLazyList<GdbMiResult>(text);
+        }
+        else {
+          value.list.type = GdbMiList.Type.Values;
+          value.list.values = new GdbMiLazyList<GdbMiValue>(text);
+        }
+      }
+    }
+    mySkipFirst = null;
+  }
+
+  /**
+   * Appends the bytes between the position and the limit of the buffer to the raw text, dropping the text of the
+   * completed records first.
+   */
+  private void appendRaw(@NotNull ByteBuffer buffer) {
+    int length = buffer.remaining();
+    int consumed = (int)(myRawConsumed - myRawStart);
+    int kept = myRawLength - consumed;
+    int capacity = myRaw.length;
+    if (kept + length > capacity) {
+      capacity = Math.max(Math.max(capacity * 2, RAW_BUFFER_SIZE), kept + length);
+    }
+    else if (capacity > RAW_BUFFER_SIZE && kept + length <= RAW_BUFFER_SIZE) {
+      capacity = RAW_BUFFER_SIZE;
+    }
+    byte[] raw = capacity == myRaw.length ? myRaw : new byte[capacity];
+    if (consumed != 0 || raw != myRaw) {
+      System.arraycopy(myRaw, consumed, raw, 0, kept);
+    }
+    myRaw = raw;
+    myRawStart = myRawConsumed;
+    myRawLength = kept;
+
+    buffer.duplicate().get(myRaw, myRawLength, length);
+    myRawLength += length;
+  }
+
+  /**
+   * Returns the size of the buffer holding the raw text.
+   */
+  @TestOnly
+  int getRawCapacity() {
+    return myRaw.length;
+  }
+
   /**
    * Sets the state of the parser FSM.
    *
@@ -768,4 +947,45 @@ public class GdbMiParser {
     myState.pop();
     myState.push(state);
   }
+
+  /**
+   * Unsynchronized array-backed stack.
+   */
+  private static class ArrayStack<T> {
+    @NotNull private Object[] myItems = new Object[16];
+    private int mySize;
+
+    void push(T item) {
+      if (mySize == myItems.length) {
+        myItems = Arrays.copyOf(myItems, mySize * 2);
+      }
+      myItems[mySize++] = item;
+    }
+
+    @SuppressWarnings("unchecked")
+    T pop() {
+      if (mySize == 0) {
+        throw new IllegalArgumentException("Mismatched tuple or list detected");
+      }
+      T item = (T)myItems[--mySize];
+      myItems[mySize] = null;
+      return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    T peek() {
+      if (mySize == 0) {
+        throw new IllegalArgumentException("Mismatched tuple or list detected");
+      }
+      return (T)myItems[mySize - 1];
+    }
+
+    int size() {
+      return mySize;
+    }
+
+    boolean isEmpty() {
+      return mySize == 0;
+    }
+  }
 }
@@ -73,6 +73,11 @@ public class GdbMiToken {
    */
   @Nullable public String value = null;
 
+  /**
+   * Offset of the token in the GDB output stream. Only set for tuple and list brackets, -1 otherwise.
+   */
+  public long offset = -1;
+
   /**
    * Constructor; sets the values.
    *
@@ -93,6 +98,17 @@ public class GdbMiToken {
     this.type = type;
   }
 
+  /**
+   * Constructor; sets the type and the offset in the stream. The value is set to null.
+   *
+   * @param type   The type of token.
+   * @param offset The offset of the token in the GDB output stream.
+   */
+  public GdbMiToken(Type type, long offset) {
+    this.type = type;
+    this.offset = offset;
+  }
+
   /**
    * Converts the token to a string.
    *
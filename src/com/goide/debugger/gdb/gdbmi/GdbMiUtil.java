@@ -58,4 +58,15 @@ public class GdbMiUtil {
   public static String formatGdbString(String string) {
     return formatGdbString(string, true);
   }
+
+  /**
+   * Parses memory contents as returned by -data-read-memory-bytes, two hexadecimal digits per byte.
+   */
+  public static byte[] parseHexBytes(String contents) {
+    byte[] bytes = new byte[contents.length() / 2];
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = (byte)(Character.digit(contents.charAt(2 * i), 16) << 4 | Character.digit(contents.charAt(2 * i + 1), 16));
+    }
+    return bytes;
+  }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb.messages;
+
+import com.goide.debugger.gdb.gdbmi.GdbMiValue;
+import com.goide.debugger.gdb.messages.annotations.GdbMiField;
+import com.goide.debugger.gdb.messages.annotations.GdbMiObject;
+
+/**
+ * A block of memory read by a -data-read-memory-bytes request.
+ */
+@SuppressWarnings("unused")
+@GdbMiObject
+public class GdbMemoryBlock {
+  /**
+   * The start address of the block.
+   */
+  @GdbMiField(name = "begin", valueType = GdbMiValue.Type.String,
+              valueProcessor = "com.goide.debugger.gdb.messages.GdbMiMessageConverterUtils.hexStringToLong")
+  public Long begin;
+
+  /**
+   * The offset of the block relative to the requested address.
+   */
+  @GdbMiField(name = "offset", valueType = GdbMiValue.Type.String,
+              valueProcessor = "com.goide.debugger.gdb.messages.GdbMiMessageConverterUtils.hexStringToLong")
+  public Long offset;
+
+  /**
+   * The end address of the block, exclusive.
+   */
+  @GdbMiField(name = "end", valueType = GdbMiValue.Type.String,
+              valueProcessor = "com.goide.debugger.gdb.messages.GdbMiMessageConverterUtils.hexStringToLong")
+  public Long end;
+
+  /**
+   * The contents of the block, two hexadecimal digits per byte.
+   */
+  @GdbMiField(name = "contents", valueType = GdbMiValue.Type.String)
+  public String contents;
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb.messages;
+
+import com.goide.debugger.gdb.gdbmi.GdbMiValue;
+import com.goide.debugger.gdb.messages.annotations.GdbMiDoneEvent;
+import com.goide.debugger.gdb.messages.annotations.GdbMiField;
+
+import java.util.List;
+
+/**
+ * The readable blocks of a memory range. This is returned from a -data-read-memory-bytes request.
+ */
+@SuppressWarnings("unused")
+@GdbMiDoneEvent(command = "-data-read-memory-bytes")
+public class GdbMemoryBlocks extends GdbDoneEvent {
+  /**
+   * The blocks, in address order. Unreadable parts of the range are not included.
+   */
+  @GdbMiField(name = "memory", valueType = GdbMiValue.Type.List)
+  public List<GdbMemoryBlock> blocks;
+}
@@ -31,14 +31,18 @@ public class GdbMiEventTypes {
     GdbErrorEvent.class,
     GdbExitEvent.class,
     GdbRunningEvent.class,
-    GdbStoppedEvent.class};
+    GdbStoppedEvent.class,
+    GdbThreadExitedEvent.class};
 
   /**
    * An array of types of 'done' events.
    */
   @NotNull public static Class<?>[] doneEventTypes = {
     GdbBreakpoint.class,
+    GdbExpressionValue.class,
     GdbFeatures.class,
+    GdbMemoryBlocks.class,
+    GdbStackDepth.class,
     GdbStackTrace.class,
     GdbThreadInfo.class,
     GdbVariableObject.class,
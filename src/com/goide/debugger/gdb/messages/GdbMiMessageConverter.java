@@ -23,13 +23,14 @@ import com.goide.debugger.gdb.gdbmi.GdbMiValue;
 import com.goide.debugger.gdb.messages.annotations.GdbMiConversionRule;
 import com.goide.debugger.gdb.messages.annotations.GdbMiDoneEvent;
 import com.goide.debugger.gdb.messages.annotations.GdbMiEvent;
-import com.goide.debugger.gdb.messages.annotations.GdbMiField;
 import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.*;
-import java.util.Arrays;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -45,6 +46,9 @@ public class GdbMiMessageConverter {
    */
   public static final Object ValueProcessorPassThrough = new Object();
 
+  // Conversion rules from GdbMiValueConversionRules, looked up once
+  @NotNull private static final Method[] ourConversionRules = findConversionRules();
+
   /**
    * Converts the given GDB/MI result record into a suitable Java object.
    *
@@ -178,29 +182,7 @@ public class GdbMiMessageConverter {
   @Nullable
   public static Object processObject(@NotNull Class<?> clazz, @NotNull List<GdbMiResult> results) {
     try {
-      Object object = clazz.newInstance();
-
-      // Populate the fields with data from the result
-      Field[] fields = clazz.getFields();
-      for (Field field : fields) {
-        GdbMiField fieldAnnotation = field.getAnnotation(GdbMiField.class);
-        if (fieldAnnotation == null) {
-          continue;
-        }
-
-        // Find a result with the requested variable name
-        for (GdbMiResult result : results) {
-          if (!fieldAnnotation.name().equals(result.variable)) {
-            continue;
-          }
-
-          // Found a matching field; convert the value
-          convertField(object, clazz, field, fieldAnnotation, result);
-          break;
-        }
-      }
-
-      return object;
+      return GdbMiObjectBinder.forClass(clazz).bind(results);
     }
     catch (Throwable ex) {
       m_log.warn("Failed to convert GDB/MI message to a Java object", ex);
@@ -208,154 +190,6 @@ public class GdbMiMessageConverter {
     }
   }
 
-  /**
-   * Converts a GdbMiResult into a suitable Java type and puts it in the given field on the given
-   * object.
-   *
-   * @param event           The object to put the value into.
-   * @param clazz           The class of the object.
-   * @param field           The field on the object to put the value into.
-   * @param fieldAnnotation The GdbMiField annotation on the field.
-   * @param result          The result to get the data from.
-   */
-  private static void convertField(Object event, @NotNull Class<?> clazz, @NotNull Field field,
-                                   @NotNull GdbMiField fieldAnnotation, @NotNull GdbMiResult result) throws InvocationTargetException,
-                                                                                          IllegalAccessException {
-    // Check the result type is supported by the field
-    boolean foundValueType = false;
-    for (GdbMiValue.Type valueType : fieldAnnotation.valueType()) {
-      if (valueType == result.value.type) {
-        foundValueType = true;
-        break;
-      }
-    }
-    if (!foundValueType) {
-      m_log.warn("Annotation on " + field.getName() + " requires on of GDB/MI types " +
-                 Arrays.toString(fieldAnnotation.valueType()) + "; got " + result.value.type);
-      return;
-    }
-
-    if (!fieldAnnotation.valueProcessor().isEmpty()) {
-      // Field has a custom value processor
-      convertFieldUsingValueProcessor(event, clazz, field, fieldAnnotation, result);
-    }
-    else {
-      // Field does not have a custom value processor; convert it manually
-      convertFieldManually(event, field, result);
-    }
-  }
-
-  /**
-   * Converts a GdbMiResult into a suitable Java type and puts it in the given field on the given
-   * object using a custom value processor defined by the field.
-   *
-   * @param event           The object to put the value into.
-   * @param clazz           The class of the object.
-   * @param field           The field on the object to put the value into.
-   * @param fieldAnnotation The GdbMiField annotation on the field.
-   * @param result          The result to get the data from.
-   */
-  private static void convertFieldUsingValueProcessor(Object event, @NotNull Class<?> clazz, @NotNull Field field,
-                                                      @NotNull GdbMiField fieldAnnotation, @NotNull GdbMiResult result) throws InvocationTargetException,
-                                                                                                             IllegalAccessException {
-    // Get the value processor function
-    Method valueProcessor;
-    try {
-      String valueProcessorName = fieldAnnotation.valueProcessor();
-      int lastDotIndex = valueProcessorName.lastIndexOf('.');
-      if (lastDotIndex == -1) {
-        // Value processor is a function on the parent class
-        valueProcessor = clazz.getMethod(valueProcessorName, GdbMiValue.class);
-      }
-      else {
-        // Value processor is a fully-qualified name
-        String className = valueProcessorName.substring(0, lastDotIndex);
-        String methodName = valueProcessorName.substring(lastDotIndex + 1);
-
-        Class<?> valueProcessorClass = Class.forName(className);
-        valueProcessor = valueProcessorClass.getMethod(methodName, GdbMiValue.class);
-      }
-    }
-    catch (NoSuchMethodException ex) {
-      m_log.warn("Annotation on " + field.getName() + " has value processor " +
-                 fieldAnnotation.valueProcessor() + ", but no such function exists on the class " +
-                 "(or it does not take the right arguments)", ex);
-      return;
-    }
-    catch (ClassNotFoundException ex) {
-      m_log.warn("Annotation on " + field.getName() + " has value processor " +
-                 fieldAnnotation.valueProcessor() + ", but the referenced class does not exist", ex);
-      return;
-    }
-
-    // Invoke the method
-    Object resultValue = null;
-    Object value;
-    try {
-      value = valueProcessor.invoke(event, result.value);
-    }
-    catch (Throwable ex) {
-      m_log.warn("Field to invoke value processor for field " + field.getName() + " with " +
-                 "value " + resultValue, ex);
-      return;
-    }
-
-    // We don't need to do anything if the value processor returned null
-    if (value == null) {
-      return;
-    }
-
-    // If the value processor returns the special value ValueProcessorPassThrough then we need
-    // to apply the default processing to the value
-    if (value == ValueProcessorPassThrough) {
-      convertFieldManually(event, field, result);
-      return;
-    }
-
-    // Check the returned value is of the correct type
-    if (!field.getType().isAssignableFrom(value.getClass())) {
-      m_log.warn("Field " + field.getName() + " is of type " + field.getType() + ", but " +
-                 "the value processor returned " + value + " [type=" + value.getClass() + "]");
-      return;
-    }
-
-    // Set the value on the field
-    try {
-      field.set(event, value);
-    }
-    catch (IllegalAccessException ex) {
-      m_log.warn("Failed to set value on field " + field, ex);
-    }
-  }
-
-  /**
-   * Converts a GdbMiResult into a suitable Java type and puts it in the given field on the given
-   * object using built-in value processors.
-   *
-   * @param event  The object to put the value into.
-   * @param field  The field on the object to put the value into.
-   * @param result The result to get the data from.
-   */
-  static void convertFieldManually(Object event, @NotNull Field field, @NotNull GdbMiResult result) throws
-                                                                                  InvocationTargetException, IllegalAccessException {
-    ParameterizedType genericType = null;
-    {
-      Type basicGenericType = field.getGenericType();
-      if (basicGenericType instanceof ParameterizedType) {
-        genericType = (ParameterizedType)basicGenericType;
-      }
-    }
-
-    Object value = applyConversionRules(field.getType(), genericType, result.value);
-    if (value != null) {
-      field.set(event, value);
-    }
-    else {
-      m_log.warn("No conversion rules were available to convert GDB/MI result '" +
-                 result + "' for field " + field);
-    }
-  }
-
   /**
    * Applies the conversion rules to the given GDB/MI result and returns the converted object.
    *
@@ -369,13 +203,7 @@ public class GdbMiMessageConverter {
                                      GdbMiValue value) throws InvocationTargetException, IllegalAccessException {
     // Apply the conversion rules until we get a match
     Object jValue = null;
-    Method[] methods = GdbMiValueConversionRules.class.getMethods();
-    for (Method method : methods) {
-      // Verify it is a conversion rule
-      if (method.getAnnotation(GdbMiConversionRule.class) == null) {
-        continue;
-      }
-
+    for (Method method : ourConversionRules) {
       jValue = method.invoke(null, targetType, genericTargetType, value);
       if (jValue != null) {
         break;
@@ -383,4 +211,15 @@ public class GdbMiMessageConverter {
     }
     return jValue;
   }
+
+  @NotNull
+  private static Method[] findConversionRules() {
+    List<Method> rules = new ArrayList<Method>();
+    for (Method method : GdbMiValueConversionRules.class.getMethods()) {
+      if (method.getAnnotation(GdbMiConversionRule.class) != null) {
+        rules.add(method);
+      }
+    }
+    return rules.toArray(new Method[rules.size()]);
+  }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.gdb.messages;
+
+import com.goide.debugger.gdb.gdbmi.GdbMiResult;
+import com.goide.debugger.gdb.gdbmi.GdbMiValue;
+import com.goide.debugger.gdb.messages.annotations.GdbMiField;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binding of GDB/MI results to the {@link GdbMiField} fields of a class. The annotated fields, their accepted value types,
+ * generic types and value processor methods are looked up once per class, so converting a record only matches result names
+ * against the prepared table and sets the fields.
+ */
+class GdbMiObjectBinder {
+  private static final Logger LOG = Logger.getInstance(GdbMiObjectBinder.class);
+
+  // Binders by class; classes are never unloaded, so the map is not weak
+  private static final ConcurrentMap<Class<?>, GdbMiObjectBinder> ourBinders =
+    new ConcurrentHashMap<Class<?>, GdbMiObjectBinder>();
+
+  @NotNull private final Class<?> myClass;
+  @NotNull private final FieldBinder[] myFields;
+
+  private GdbMiObjectBinder(@NotNull Class<?> clazz) {
+    myClass = clazz;
+    List<FieldBinder> fields = new ArrayList<FieldBinder>();
+    for (Field field : clazz.getFields()) {
+      GdbMiField fieldAnnotation = field.getAnnotation(GdbMiField.class);
+      if (fieldAnnotation != null) {
+        fields.add(new FieldBinder(clazz, field, fieldAnnotation));
+      }
+    }
+    myFields = fields.toArray(new FieldBinder[fields.size()]);
+  }
+
+  /**
+   * Returns the binder of the given class, creating it on first use.
+   */
+  @NotNull
+  static GdbMiObjectBinder forClass(@NotNull Class<?> clazz) {
+    GdbMiObjectBinder binder = ourBinders.get(clazz);
+    if (binder == null) {
+      binder = new GdbMiObjectBinder(clazz);
+      GdbMiObjectBinder existing = ourBinders.putIfAbsent(clazz, binder);
+      if (existing != null) {
+        binder = existing;
+      }
+    }
+    return binder;
+  }
+
+  /**
+   * Creates an object of the class and populates its fields from the results. Each field takes the first result with its
+   * name.
+   *
+   * @param results The results from GDB.
+   * @return The new object.
+   */
+  @NotNull
+  Object bind(@NotNull List<GdbMiResult> results) throws InstantiationException, IllegalAccessException,
+                                                         InvocationTargetException {
+    Object object = myClass.newInstance();
+    for (FieldBinder field : myFields) {
+      for (GdbMiResult result : results) {
+        if (field.myName.equals(result.variable)) {
+          field.bind(object, result);
+          break;
+        }
+      }
+    }
+    return object;
+  }
+
+  /**
+   * Prepared conversion of a result into a single field.
+   */
+  private static class FieldBinder {
+    @NotNull private final Field myField;
+    @NotNull private final String myName;
+    @NotNull private final EnumSet<GdbMiValue.Type> myValueTypes;
+    @Nullable private final ParameterizedType myGenericType;
+    @Nullable private final Method myValueProcessor;
+    // False if the field declares a value processor that does not exist; such fields are never set
+    private final boolean myValid;
+
+    FieldBinder(@NotNull Class<?> clazz, @NotNull Field field, @NotNull GdbMiField fieldAnnotation) {
+      myField = field;
+      myName = fieldAnnotation.name();
+      myValueTypes = EnumSet.noneOf(GdbMiValue.Type.class);
+      myValueTypes.addAll(Arrays.asList(fieldAnnotation.valueType()));
+      Type genericType = field.getGenericType();
+      myGenericType = genericType instanceof ParameterizedType ? (ParameterizedType)genericType : null;
+
+      Method valueProcessor = null;
+      boolean valid = true;
+      String valueProcessorName = fieldAnnotation.valueProcessor();
+      if (!valueProcessorName.isEmpty()) {
+        try {
+          int lastDotIndex = valueProcessorName.lastIndexOf('.');
+          if (lastDotIndex == -1) {
+            // Value processor is a function on the parent class
+            valueProcessor = clazz.getMethod(valueProcessorName, GdbMiValue.class);
+          }
+          else {
+            // Value processor is a fully-qualified name
+            String className = valueProcessorName.substring(0, lastDotIndex);
+            String methodName = valueProcessorName.substring(lastDotIndex + 1);
+            valueProcessor = Class.forName(className).getMethod(methodName, GdbMiValue.class);
+          }
+        }
+        catch (NoSuchMethodException ex) {
+          LOG.warn("Annotation on " + field.getName() + " has value processor " + valueProcessorName +
+                   ", but no such function exists on the class (or it does not take the right arguments)", ex);
+          valid = false;
+        }
+        catch (ClassNotFoundException ex) {
+          LOG.warn("Annotation on " + field.getName() + " has value processor " + valueProcessorName +
+                   ", but the referenced class does not exist", ex);
+          valid = false;
+        }
+      }
+      myValueProcessor = valueProcessor;
+      myValid = valid;
+    }
+
+    void bind(@NotNull Object object, @NotNull GdbMiResult result) throws InvocationTargetException, IllegalAccessException {
+      if (!myValid) {
+        return;
+      }
+
+      // Check the result type is supported by the field
+      if (!myValueTypes.contains(result.value.type)) {
+        LOG.warn("Annotation on " + myField.getName() + " requires on of GDB/MI types " + myValueTypes +
+                 "; got " + result.value.type);
+        return;
+      }
+
+      if (myValueProcessor != null) {
+        Object value;
+        try {
+          value = myValueProcessor.invoke(object, result.value);
+        }
+        catch (Throwable ex) {
+          LOG.warn("Field to invoke value processor for field " + myField.getName(), ex);
+          return;
+        }
+
+        // We don't need to do anything if the value processor returned null
+        if (value == null) {
+          return;
+        }
+
+        // If the value processor returns the special value ValueProcessorPassThrough then we need to apply the default
+        // processing to the value
+        if (value != GdbMiMessageConverter.ValueProcessorPassThrough) {
+          if (!myField.getType().isAssignableFrom(value.getClass())) {
+            LOG.warn("Field " + myField.getName() + " is of type " + myField.getType() + ", but the value processor " +
+                     "returned " + value + " [type=" + value.getClass() + "]");
+            return;
+          }
+          myField.set(object, value);
+          return;
+        }
+      }
+
+      Object value = GdbMiMessageConverter.applyConversionRules(myField.getType(), myGenericType, result.value);
+      if (value != null) {
+        myField.set(object, value);
+      }
+      else {
+        LOG.warn("No conversion rules were available to convert GDB/MI result '" + result + "' for field " + myField);
+      }
+    }
+  }
+}
@@ -33,4 +33,17 @@ public class GdbVariableObjects extends GdbDoneEvent {
    */
   @GdbMiField(name = "children", valueType = GdbMiValue.Type.List)
   public List<GdbVariableObject> objects;
+
+  /**
+   * The number of children listed in the response. For -var-list-children requests with a range this is the size of the
+   * page, not the total number of children.
+   */
+  @GdbMiField(name = "numchild", valueType = GdbMiValue.Type.String)
+  public Integer numChildren;
+
+  /**
+   * For -var-list-children requests with a range, whether there are children beyond the range.
+   */
+  @GdbMiField(name = "has_more", valueType = GdbMiValue.Type.String)
+  public Boolean hasMore;
 }
@@ -36,6 +36,7 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.ui.content.Content;
+import com.intellij.util.Consumer;
 import com.intellij.xdebugger.XDebugProcess;
 import com.intellij.xdebugger.XDebugSession;
 import com.intellij.xdebugger.XSourcePosition;
@@ -44,6 +45,7 @@ import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
 import com.intellij.xdebugger.ui.XDebugTabLayouter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.concurrency.AsyncPromise;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -59,6 +61,7 @@ public class GdbDebugProcess extends XDebugProcess implements GdbListener {
   @NotNull private final GdbConsoleView myGdbConsole;
   @NotNull private final Gdb myGdb;
   @NotNull private final GdbBreakpointHandler myBreakpointHandler;
+  @NotNull private final GdbGoroutines myGoroutines;
   private final SimpleDateFormat myTimeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
 
   /**
@@ -74,6 +77,7 @@ public class GdbDebugProcess extends XDebugProcess implements GdbListener {
     myGdb = new Gdb(myConfiguration.GDB_PATH, workingDirectory, this);
     myGdbConsole = new GdbConsoleView(myGdb, session.getProject());
     myBreakpointHandler = new GdbBreakpointHandler(myGdb, this);
+    myGoroutines = new GdbGoroutines(myGdb);
     myGdb.start();
   }
 
@@ -243,7 +247,7 @@ public class GdbDebugProcess extends XDebugProcess implements GdbListener {
       });
     }
     else {
-      // Handle it immediately without any thread data
+      // Handle it without any thread data
       handleTargetStopped(event, null);
     }
   }
@@ -369,11 +373,40 @@ public class GdbDebugProcess extends XDebugProcess implements GdbListener {
       if (!suspendProcess) {
         // Resume execution
         resume();
+        return;
       }
     }
     else {
       getSession().positionReached(suspendContext);
     }
+
+    // The goroutines are shown once they are listed; stepping does not wait for them
+    if (stoppedEvent.threadId != null) {
+      listGoroutines(suspendContext, stoppedEvent.threadId);
+    }
+  }
+
+  /**
+   * Lists the goroutines of the program and adds them to the given suspend context if it is still shown. A failure to
+   * list them is not an error, the program is shown with its threads only.
+   */
+  private void listGoroutines(@NotNull final GdbSuspendContext suspendContext, int thread) {
+    AsyncPromise<List<GdbGoroutines.Goroutine>> goroutines = myGoroutines.list(thread);
+    goroutines.done(new Consumer<List<GdbGoroutines.Goroutine>>() {
+      @Override
+      public void consume(List<GdbGoroutines.Goroutine> parked) {
+        XDebugSession session = getSession();
+        if (parked.isEmpty() || session.getSuspendContext() != suspendContext) return;
+        suspendContext.addGoroutines(myGoroutines, parked);
+        session.rebuildViews();
+      }
+    });
+    goroutines.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        LOG.warn("Failed to list goroutines: " + error.getMessage());
+      }
+    });
   }
 
   @NotNull
@@ -17,22 +17,19 @@
 package com.goide.debugger.ideagdb.debug;
 
 import com.goide.debugger.gdb.Gdb;
-import com.goide.debugger.gdb.messages.GdbErrorEvent;
-import com.goide.debugger.gdb.messages.GdbEvent;
 import com.goide.debugger.gdb.messages.GdbVariableObject;
 import com.goide.debugger.gdb.messages.GdbVariableObjects;
-import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
 
 /**
  * Expression evaluator for GDB.
  */
 public class GdbEvaluator extends XDebuggerEvaluator {
-  private static final Logger LOG = Logger.getInstance(GdbEvaluator.class);
-
   // The GDB instance
   private final Gdb myGdb;
 
@@ -62,10 +59,17 @@ public class GdbEvaluator extends XDebuggerEvaluator {
    */
   @Override
   public void evaluate(@NotNull String expression, @NotNull final XEvaluationCallback callback, @Nullable XSourcePosition position) {
-    myGdb.evaluateExpression(myThread, myFrame, expression, new Gdb.GdbEventCallback() {
+    AsyncPromise<GdbVariableObjects> result = myGdb.evaluateExpression(myThread, myFrame, expression);
+    result.done(new Consumer<GdbVariableObjects>() {
       @Override
-      public void onGdbCommandCompleted(GdbEvent event) {
-        onGdbExpressionReady(event, callback);
+      public void consume(GdbVariableObjects objects) {
+        onGdbExpressionReady(objects, callback);
+      }
+    });
+    result.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        callback.errorOccurred(String.valueOf(error.getMessage()));
       }
     });
   }
@@ -84,21 +88,10 @@ public class GdbEvaluator extends XDebuggerEvaluator {
   /**
    * Callback function for when GDB has responded to our expression evaluation request.
    *
-   * @param event    The event.
-   * @param callback The callback passed to evaluate().
+   * @param variableObjects The variable object of the expression.
+   * @param callback        The callback passed to evaluate().
    */
-  private void onGdbExpressionReady(GdbEvent event, @NotNull XEvaluationCallback callback) {
-    if (event instanceof GdbErrorEvent) {
-      callback.errorOccurred(((GdbErrorEvent)event).message);
-      return;
-    }
-    if (!(event instanceof GdbVariableObjects)) {
-      callback.errorOccurred("Unexpected data received from GDB");
-      LOG.warn("Unexpected event " + event + " received from expression request");
-      return;
-    }
-
-    GdbVariableObjects variableObjects = (GdbVariableObjects)event;
+  private void onGdbExpressionReady(@NotNull GdbVariableObjects variableObjects, @NotNull XEvaluationCallback callback) {
     if (variableObjects.objects.isEmpty()) {
       callback.errorOccurred("Failed to evaluate expression");
       return;
@@ -110,6 +103,6 @@ public class GdbEvaluator extends XDebuggerEvaluator {
       return;
     }
 
-    callback.evaluated(new GdbValue(myGdb, variableObject));
+    callback.evaluated(new GdbValue(myGdb, variableObject, myThread, myFrame, variableObject.expression));
   }
 }
@@ -17,8 +17,9 @@
 package com.goide.debugger.ideagdb.debug;
 
 import com.goide.debugger.gdb.Gdb;
-import com.goide.debugger.gdb.messages.*;
-import com.intellij.openapi.diagnostic.Logger;
+import com.goide.debugger.gdb.messages.GdbStackFrame;
+import com.goide.debugger.gdb.messages.GdbThread;
+import com.intellij.util.Consumer;
 import com.intellij.xdebugger.frame.XExecutionStack;
 import com.intellij.xdebugger.frame.XStackFrame;
 import org.jetbrains.annotations.NotNull;
@@ -28,8 +29,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class GdbExecutionStack extends XExecutionStack {
-  private static final Logger LOG = Logger.getInstance(GdbExecutionStack.class);
-
   private final Gdb myGdb;
   @NotNull private final GdbThread myThread;
   private GdbExecutionStackFrame myTopFrame;
@@ -72,50 +71,24 @@ public class GdbExecutionStack extends XExecutionStack {
    */
   @Override
   public void computeStackFrames(final int firstFrameIndex, @NotNull final XStackFrameContainer container) {
-    // Just get the whole stack
-    String command = "-stack-list-frames";
-    myGdb.sendCommand(command, new Gdb.GdbEventCallback() {
+    // Only the top of a stack listed before is requested again
+    myGdb.getStackFrames(myThread.id, null).done(new Consumer<List<GdbStackFrame>>() {
+      @Override
+      public void consume(List<GdbStackFrame> frames) {
+        // Build a list of GdbExecutionStackFrames
+        List<GdbExecutionStackFrame> stack = new ArrayList<GdbExecutionStackFrame>();
+        for (int i = firstFrameIndex; i < frames.size(); ++i) {
+          stack.add(new GdbExecutionStackFrame(myGdb, myThread.id, frames.get(i)));
+        }
+
+        // Pass the data on
+        container.addStackFrames(stack, true);
+      }
+    }).rejected(new Consumer<Throwable>() {
       @Override
-      public void onGdbCommandCompleted(GdbEvent event) {
-        onGdbStackTraceReady(event, firstFrameIndex, container);
+      public void consume(Throwable error) {
+        container.errorOccurred(String.valueOf(error.getMessage()));
       }
     });
   }
-
-  /**
-   * Callback function for when GDB has responded to our stack trace request.
-   *
-   * @param event           The event.
-   * @param firstFrameIndex The first frame from the list to use.
-   * @param container       The container passed to computeStackFrames().
-   */
-  private void onGdbStackTraceReady(GdbEvent event, int firstFrameIndex,
-                                    @NotNull XStackFrameContainer container) {
-    if (event instanceof GdbErrorEvent) {
-      container.errorOccurred(((GdbErrorEvent)event).message);
-      return;
-    }
-    if (!(event instanceof GdbStackTrace)) {
-      container.errorOccurred("Unexpected data received from GDB");
-      LOG.warn("Unexpected event " + event + " received from -stack-list-frames request");
-      return;
-    }
-
-    // Inspect the stack trace
-    GdbStackTrace stackTrace = (GdbStackTrace)event;
-    if (stackTrace.stack == null || stackTrace.stack.isEmpty()) {
-      // No data
-      container.addStackFrames(new ArrayList<XStackFrame>(0), true);
-    }
-
-    // Build a list of GdbExecutionStaceFrames
-    List<GdbExecutionStackFrame> stack = new ArrayList<GdbExecutionStackFrame>();
-    for (int i = firstFrameIndex; i < stackTrace.stack.size(); ++i) {
-      GdbStackFrame frame = stackTrace.stack.get(i);
-      stack.add(new GdbExecutionStackFrame(myGdb, myThread.id, frame));
-    }
-
-    // Pass the data on
-    container.addStackFrames(stack, true);
-  }
 }
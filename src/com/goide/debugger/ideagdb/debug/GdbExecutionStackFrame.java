@@ -19,11 +19,11 @@ package com.goide.debugger.ideagdb.debug;
 import com.goide.debugger.gdb.Gdb;
 import com.goide.debugger.gdb.messages.*;
 import com.intellij.icons.AllIcons;
-import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.ColoredTextContainer;
 import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.util.Consumer;
 import com.intellij.xdebugger.XDebuggerBundle;
 import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
@@ -33,11 +33,11 @@ import com.intellij.xdebugger.frame.XStackFrame;
 import com.intellij.xdebugger.frame.XValueChildrenList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
 
 import java.io.File;
 
 public class GdbExecutionStackFrame extends XStackFrame {
-  private static final Logger LOG = Logger.getInstance(GdbExecutionStackFrame.class);
   private final Gdb myGdb;
   private final int myThread;
   private final GdbStackFrame myFrame;
@@ -169,10 +169,27 @@ public class GdbExecutionStackFrame extends XStackFrame {
     // TODO: This can be called multiple times if the user changes the value of a variable. We
     // shouldn't really call -stack-list-variables more than once in this case (i.e., only call
     // -var-update after the first call)
-    myGdb.getVariablesForFrame(myThread, myFrameNo, new Gdb.GdbEventCallback() {
+    Gdb.Obsolescent requester = new Gdb.Obsolescent() {
       @Override
-      public void onGdbCommandCompleted(GdbEvent event) {
-        onGdbVariablesReady(event, node);
+      public boolean isObsolete() {
+        return node.isObsolete();
+      }
+    };
+    AsyncPromise<GdbVariableObjects> variables = myGdb.getVariablesForFrame(myThread, myFrameNo, requester);
+    variables.done(new Consumer<GdbVariableObjects>() {
+      @Override
+      public void consume(GdbVariableObjects objects) {
+        if (!node.isObsolete()) {
+          onGdbVariablesReady(objects, node);
+        }
+      }
+    });
+    variables.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        if (!node.isObsolete()) {
+          node.setErrorMessage(String.valueOf(error.getMessage()));
+        }
       }
     });
   }
@@ -180,31 +197,20 @@ public class GdbExecutionStackFrame extends XStackFrame {
   /**
    * Callback function for when GDB has responded to our stack variables request.
    *
-   * @param event The event.
-   * @param node  The node passed to computeChildren().
+   * @param variables The variable objects of the frame.
+   * @param node      The node passed to computeChildren().
    */
-  private void onGdbVariablesReady(GdbEvent event, @NotNull final XCompositeNode node) {
-    if (event instanceof GdbErrorEvent) {
-      node.setErrorMessage(((GdbErrorEvent)event).message);
-      return;
-    }
-    if (!(event instanceof GdbVariableObjects)) {
-      node.setErrorMessage("Unexpected data received from GDB");
-      LOG.warn("Unexpected event " + event + " received from variable objects request");
-      return;
-    }
-
-    // Inspect the data
-    GdbVariableObjects variables = (GdbVariableObjects)event;
+  private void onGdbVariablesReady(@NotNull GdbVariableObjects variables, @NotNull final XCompositeNode node) {
     if (variables.objects == null || variables.objects.isEmpty()) {
       // No data
       node.addChildren(XValueChildrenList.EMPTY, true);
+      return;
     }
 
     // Build a XValueChildrenList
     XValueChildrenList children = new XValueChildrenList(variables.objects.size());
     for (GdbVariableObject variable : variables.objects) {
-      children.add(variable.expression, new GdbValue(myGdb, variable));
+      children.add(variable.expression, new GdbValue(myGdb, variable, myThread, myFrameNo, variable.expression));
     }
     node.addChildren(children, true);
   }
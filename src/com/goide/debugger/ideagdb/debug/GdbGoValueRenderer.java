@@ -0,0 +1,322 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.ideagdb.debug;
+
+import com.goide.debugger.gdb.Gdb;
+import com.goide.debugger.gdb.messages.GdbVariableObject;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Consumer;
+import com.intellij.xdebugger.frame.XValueNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
+
+import javax.swing.*;
+import java.nio.charset.Charset;
+
+/**
+ * Presents values of Go runtime types by reading their headers from memory and decoding them here, instead of listing the
+ * children of their variable objects:
+ * <ul>
+ * <li>strings show their contents, read together with the {ptr, len} header;</li>
+ * <li>slices show the len and cap of their {ptr, len, cap} header;</li>
+ * <li>maps and channels show the count of their runtime structure;</li>
+ * <li>interfaces show whether they are nil and where their data is.</li>
+ * </ul>
+ * Reads of all values shown at once are pipelined by Gdb, so a frame takes about one round trip regardless of the number
+ * of values. The headers are decoded as little-endian, which all targets supported by the Go debugger are.
+ */
+class GdbGoValueRenderer {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Number of string bytes read together with the header; longer strings take a second read.
+   */
+  private static final int STRING_PREFIX_LENGTH = 256;
+
+  /**
+   * Maximum number of string bytes shown.
+   */
+  static final int MAX_STRING_LENGTH = 10000;
+
+  enum Kind {
+    String, Slice, Map, Channel, Interface, Other
+  }
+
+  private GdbGoValueRenderer() {
+  }
+
+  /**
+   * Determines the Go runtime type of a variable object from the type reported by GDB.
+   */
+  @NotNull
+  static Kind getKind(@Nullable String type) {
+    if (type == null) return Kind.Other;
+    if (type.equals("struct string") || type.equals("string")) return Kind.String;
+    if (type.startsWith("struct []")) return Kind.Slice;
+    if (type.startsWith("map[") || type.startsWith("struct hash<")) return Kind.Map;
+    if (type.startsWith("chan ") || type.startsWith("struct hchan<")) return Kind.Channel;
+    if (type.equals("struct runtime.iface") || type.equals("struct runtime.eface")) return Kind.Interface;
+    return Kind.Other;
+  }
+
+  /**
+   * Starts rendering the given value into the node.
+   *
+   * @param path The expression of the value in its frame, if known. Strings, slices and interfaces need it to find their
+   *             header; maps and channels are pointers and are found by their value.
+   * @return Whether the value is rendered; if not, the caller should present the value itself.
+   */
+  static boolean render(@NotNull Gdb gdb, @NotNull final GdbVariableObject object, int thread, int frame,
+                        @Nullable String path, @NotNull XValueNode node, @NotNull Icon icon) {
+    Kind kind = getKind(object.type);
+    switch (kind) {
+      case String:
+      case Slice:
+      case Interface:
+        if (path == null) return false;
+        String data = kind == Kind.String ? "(" + path + ").str" : null;
+        new Request(gdb, object, thread, frame, node, icon).readHeader(kind, "&(" + path + ")", data);
+        return true;
+
+      case Map:
+      case Channel:
+        Long address = parseAddress(object.value);
+        if (address == null) return false;
+        if (address == 0) {
+          node.setPresentation(icon, GdbValue.getGoObjectType(object.type), "nil", false);
+          return true;
+        }
+        new Request(gdb, object, thread, frame, node, icon).readHeader(kind, "0x" + Long.toHexString(address), null);
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Rendering of a single value.
+   */
+  private static class Request implements Gdb.Obsolescent {
+    @NotNull private final Gdb myGdb;
+    @NotNull private final GdbVariableObject myObject;
+    private final int myThread;
+    private final int myFrame;
+    @NotNull private final XValueNode myNode;
+    @NotNull private final Icon myIcon;
+    @NotNull private final String myType;
+    private final boolean myHasChildren;
+
+    Request(@NotNull Gdb gdb, @NotNull GdbVariableObject object, int thread, int frame, @NotNull XValueNode node,
+            @NotNull Icon icon) {
+      myGdb = gdb;
+      myObject = object;
+      myThread = thread;
+      myFrame = frame;
+      myNode = node;
+      myIcon = icon;
+      myType = GdbValue.getGoObjectType(object.type);
+      myHasChildren = GdbValue.hasChildren(object);
+    }
+
+    @Override
+    public boolean isObsolete() {
+      return myNode.isObsolete();
+    }
+
+    /**
+     * Reads the header at the given address and, for strings, the beginning of the data at the given address.
+     */
+    void readHeader(@NotNull final Kind kind, @NotNull final String address, @Nullable final String data) {
+      myGdb.getPointerSize().done(new Consumer<Integer>() {
+        @Override
+        public void consume(final Integer pointerSize) {
+          if (isObsolete()) return;
+          int words = kind == Kind.Slice ? 3 : 2;
+          final AsyncPromise<byte[]> header = myGdb.readMemory(myThread, myFrame, address, words * pointerSize, Request.this);
+          // The beginning of a string is read in the same round trip as its header
+          final AsyncPromise<byte[]> prefix =
+            data != null ? myGdb.readMemory(myThread, myFrame, data, STRING_PREFIX_LENGTH, Request.this) : null;
+          onRead(header, new Consumer<byte[]>() {
+            @Override
+            public void consume(byte[] bytes) {
+              if (prefix == null) {
+                onHeaderRead(kind, bytes, null, pointerSize);
+                return;
+              }
+              // The data of an empty string may be unreadable, the header tells what to read then
+              final byte[] headerBytes = bytes;
+              prefix.done(new Consumer<byte[]>() {
+                @Override
+                public void consume(byte[] prefixBytes) {
+                  if (!isObsolete()) onHeaderRead(kind, headerBytes, prefixBytes, pointerSize);
+                }
+              });
+              prefix.rejected(new Consumer<Throwable>() {
+                @Override
+                public void consume(Throwable error) {
+                  if (!isObsolete()) onHeaderRead(kind, headerBytes, null, pointerSize);
+                }
+              });
+            }
+          });
+        }
+      });
+    }
+
+    private void onHeaderRead(@NotNull Kind kind, @NotNull byte[] header, @Nullable byte[] prefix, int pointerSize) {
+      if (kind != Kind.String) {
+        String value = formatHeader(kind, header, pointerSize);
+        if (value != null) {
+          present(value);
+        }
+        else {
+          showRaw();
+        }
+        return;
+      }
+      if (header.length < 2 * pointerSize) {
+        showRaw();
+        return;
+      }
+      long pointer = readWord(header, 0, pointerSize);
+      long length = readWord(header, pointerSize, pointerSize);
+      onStringHeaderRead(pointer, length, prefix != null ? prefix : new byte[0]);
+    }
+
+    private void onStringHeaderRead(final long pointer, final long length, @NotNull byte[] prefix) {
+      if (length <= 0 || pointer == 0) {
+        presentString(new byte[0], 0);
+        return;
+      }
+      final int count = (int)Math.min(length, MAX_STRING_LENGTH);
+      if (prefix.length >= count) {
+        presentString(prefix, length);
+        return;
+      }
+      onRead(myGdb.readMemory(myThread, myFrame, "0x" + Long.toHexString(pointer), count, this), new Consumer<byte[]>() {
+        @Override
+        public void consume(byte[] bytes) {
+          presentString(bytes, length);
+        }
+      });
+    }
+
+    private void presentString(@NotNull byte[] bytes, long length) {
+      myNode.setPresentation(myIcon, "string (" + length + ")", formatString(bytes, length), false);
+    }
+
+    private void present(@NotNull String value) {
+      myNode.setPresentation(myIcon, myType, value, myHasChildren);
+    }
+
+    private void showRaw() {
+      myNode.setPresentation(myIcon, myType, StringUtil.notNullize(myObject.value, "<null>"), myHasChildren);
+    }
+
+    /**
+     * Passes the bytes of a successful read to the consumer, or shows the raw value of the variable object on failure.
+     */
+    private void onRead(@NotNull AsyncPromise<byte[]> read, @NotNull final Consumer<byte[]> consumer) {
+      read.done(new Consumer<byte[]>() {
+        @Override
+        public void consume(byte[] bytes) {
+          if (!isObsolete()) consumer.consume(bytes);
+        }
+      });
+      read.rejected(new Consumer<Throwable>() {
+        @Override
+        public void consume(Throwable error) {
+          if (!isObsolete()) showRaw();
+        }
+      });
+    }
+  }
+
+  /**
+   * Formats the header of a slice, map, channel or interface.
+   *
+   * @return The presentation of the value, or null if the header is too short or the kind has no header to show.
+   */
+  @Nullable
+  static String formatHeader(@NotNull Kind kind, @NotNull byte[] header, int pointerSize) {
+    int words = kind == Kind.Slice ? 3 : 2;
+    if (header.length < words * pointerSize) {
+      return null;
+    }
+    long first = readWord(header, 0, pointerSize);
+    long second = readWord(header, pointerSize, pointerSize);
+    switch (kind) {
+      case Slice:
+        long cap = readWord(header, 2 * pointerSize, pointerSize);
+        return first == 0 && cap == 0 ? "nil" : "len:" + second + ", cap:" + cap;
+
+      case Map:
+        // hmap starts with the number of elements
+        return "len:" + first;
+
+      case Channel:
+        // hchan starts with the number of queued elements and the size of the buffer
+        return "len:" + first + ", cap:" + second;
+
+      case Interface:
+        return first == 0 ? "nil" : "data:0x" + Long.toHexString(second);
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Formats the bytes read from the data of a string of the given length, marking strings that are shown in part.
+   */
+  @NotNull
+  static String formatString(@NotNull byte[] bytes, long length) {
+    int count = (int)Math.min(bytes.length, Math.min(length, MAX_STRING_LENGTH));
+    String value = "\"" + StringUtil.escapeStringCharacters(new String(bytes, 0, count, UTF8)) + "\"";
+    if (count < length) {
+      value += "...";
+    }
+    return value;
+  }
+
+  /**
+   * Reads a little-endian unsigned word of the given size.
+   */
+  static long readWord(@NotNull byte[] bytes, int offset, int size) {
+    long value = 0;
+    for (int i = size - 1; i >= 0; --i) {
+      value = value << 8 | (bytes[offset + i] & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Parses the address GDB shows as the value of a pointer, e.g. "0xc208032150" or "(struct hchan<int> *) 0xc208032150".
+   */
+  @Nullable
+  static Long parseAddress(@Nullable String value) {
+    if (value == null) return null;
+    int start = value.lastIndexOf("0x");
+    if (start < 0) return null;
+    int end = start + 2;
+    while (end < value.length() && Character.digit(value.charAt(end), 16) >= 0) end++;
+    if (end == start + 2 || end - start - 2 > 15) return null;
+    return Long.parseLong(value.substring(start + 2, end), 16);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.ideagdb.debug;
+
+import com.goide.debugger.gdb.Gdb;
+import com.goide.debugger.gdb.messages.GdbStackFrame;
+import com.intellij.util.Consumer;
+import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
+import com.intellij.xdebugger.frame.XCompositeNode;
+import com.intellij.xdebugger.frame.XExecutionStack;
+import com.intellij.xdebugger.frame.XStackFrame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stack of a goroutine that is not running on a thread. The frames are computed when the stack is selected.
+ */
+public class GdbGoroutineExecutionStack extends XExecutionStack {
+  private final Gdb myGdb;
+  @NotNull private final GdbGoroutines myGoroutines;
+  @NotNull private final GdbGoroutines.Goroutine myGoroutine;
+  private final int myThread;
+
+  /**
+   * Constructor.
+   *
+   * @param gdb        Handle to the GDB instance.
+   * @param goroutines The goroutines of the program.
+   * @param goroutine  The goroutine.
+   * @param thread     A stopped thread to unwind the goroutine on.
+   */
+  GdbGoroutineExecutionStack(Gdb gdb, @NotNull GdbGoroutines goroutines, @NotNull GdbGoroutines.Goroutine goroutine,
+                             int thread) {
+    super(goroutine.formatName());
+    myGdb = gdb;
+    myGoroutines = goroutines;
+    myGoroutine = goroutine;
+    myThread = thread;
+  }
+
+  @Nullable
+  @Override
+  public XStackFrame getTopFrame() {
+    return null;
+  }
+
+  @Override
+  public void computeStackFrames(final int firstFrameIndex, @NotNull final XStackFrameContainer container) {
+    myGoroutines.getStack(myThread, myGoroutine).done(new Consumer<List<GdbStackFrame>>() {
+      @Override
+      public void consume(List<GdbStackFrame> frames) {
+        List<XStackFrame> stack = new ArrayList<XStackFrame>();
+        for (int i = firstFrameIndex; i < frames.size(); ++i) {
+          stack.add(new GoroutineStackFrame(myGdb, myThread, frames.get(i)));
+        }
+        container.addStackFrames(stack, true);
+      }
+    }).rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        container.errorOccurred(String.valueOf(error.getMessage()));
+      }
+    });
+  }
+
+  /**
+   * Frame of a goroutine. The registers of the goroutine are only borrowed while its stack is listed, so variables cannot
+   * be evaluated in its frames.
+   */
+  private static class GoroutineStackFrame extends GdbExecutionStackFrame {
+    GoroutineStackFrame(Gdb gdb, int thread, GdbStackFrame frame) {
+      super(gdb, thread, frame);
+    }
+
+    @Nullable
+    @Override
+    public XDebuggerEvaluator getEvaluator() {
+      return null;
+    }
+
+    @Override
+    public void computeChildren(@NotNull XCompositeNode node) {
+      node.setErrorMessage("Variables are only available in goroutines running on a thread");
+    }
+  }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.debugger.ideagdb.debug;
+
+import com.goide.debugger.gdb.Gdb;
+import com.goide.debugger.gdb.gdbmi.GdbMiUtil;
+import com.goide.debugger.gdb.messages.GdbEvent;
+import com.goide.debugger.gdb.messages.GdbExpressionValue;
+import com.goide.debugger.gdb.messages.GdbStackFrame;
+import com.goide.debugger.gdb.messages.GdbStackTrace;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Goroutines of the debugged program, enumerated from the runtime's allgs slice.
+ * <p/>
+ * Listing takes three rounds of memory reads regardless of the number of goroutines: the allgs header, the array of g
+ * pointers, and the g structures, which are read in blocks since the runtime allocates them next to each other. The field
+ * offsets of g are evaluated by GDB once per session.
+ * <p/>
+ * Stacks are only computed for goroutines the user selects, by pointing the registers of the stopped thread at the saved
+ * context of the goroutine for a -stack-list-frames. The commands run as a batch, so no other command sees the borrowed
+ * registers. Stacks are cached by goroutine and reused while its saved context does not change, which is the case for
+ * all goroutines parked between two stops.
+ */
+class GdbGoroutines {
+  private static final Logger LOG = Logger.getInstance(GdbGoroutines.class);
+
+  /**
+   * Maximum number of goroutines listed.
+   */
+  private static final int MAX_GOROUTINES = 10000;
+
+  /**
+   * Maximum number of bytes read at once when reading g structures.
+   */
+  private static final int MAX_READ_SIZE = 64 * 1024;
+
+  // Goroutine states of the runtime, without the _Gscan bit
+  private static final int STATUS_IDLE = 0;
+  private static final int STATUS_RUNNING = 2;
+  private static final int STATUS_DEAD = 6;
+  private static final int STATUS_SCAN = 0x1000;
+  private static final String[] STATUS_NAMES = {"idle", "runnable", "running", "syscall", "waiting", "moribund", "dead",
+    "enqueue", "copystack"};
+
+  /**
+   * A goroutine that is not running on a thread.
+   */
+  static class Goroutine {
+    final long id;
+    final int status;
+    final long pc;
+    final long sp;
+
+    Goroutine(long id, int status, long pc, long sp) {
+      this.id = id;
+      this.status = status;
+      this.pc = pc;
+      this.sp = sp;
+    }
+
+    @NotNull
+    String formatName() {
+      String status = this.status < STATUS_NAMES.length ? STATUS_NAMES[this.status] : String.valueOf(this.status);
+      return "Goroutine " + id + " [" + status + "]";
+    }
+  }
+
+  // Offsets of g fields
+  static class Layout {
+    final int goid;
+    final int status;
+    final int pc;
+    final int sp;
+    final int start;
+    final int size;
+
+    Layout(int goid, int status, int pc, int sp, int pointerSize) {
+      this.goid = goid;
+      this.status = status;
+      this.pc = pc;
+      this.sp = sp;
+      start = Math.min(Math.min(goid, status), Math.min(pc, sp));
+      size = Math.max(Math.max(goid + 8, status + 4), Math.max(pc, sp) + pointerSize) - start;
+    }
+  }
+
+  // Stack of a goroutine and the context it was computed for
+  private static class CachedStack {
+    final long pc;
+    final long sp;
+    @NotNull final List<GdbStackFrame> frames;
+
+    CachedStack(long pc, long sp, @NotNull List<GdbStackFrame> frames) {
+      this.pc = pc;
+      this.sp = sp;
+      this.frames = frames;
+    }
+  }
+
+  private static final String ALLGS = "'runtime.allgs'";
+  private static final String G0 = "(*" + ALLGS + ".array)";
+  private static final String[] LAYOUT_EXPRESSIONS =
+    {G0, "&" + G0 + ".goid", "&" + G0 + ".atomicstatus", "&" + G0 + ".sched.pc", "&" + G0 + ".sched.sp"};
+
+  @NotNull private final Gdb myGdb;
+  private AsyncPromise<Layout> myLayout;
+  private final ConcurrentMap<Long, CachedStack> myStacks = new ConcurrentHashMap<Long, CachedStack>();
+
+  GdbGoroutines(@NotNull Gdb gdb) {
+    myGdb = gdb;
+  }
+
+  /**
+   * Lists the goroutines that are not running on a thread, ordered by id. The list is empty if the program has no Go
+   * runtime or its goroutines cannot be read.
+   *
+   * @param thread A stopped thread to evaluate expressions in.
+   */
+  @NotNull
+  AsyncPromise<List<Goroutine>> list(final int thread) {
+    final AsyncPromise<List<Goroutine>> result = new AsyncPromise<List<Goroutine>>();
+    myGdb.getPointerSize().done(new Consumer<Integer>() {
+      @Override
+      public void consume(final Integer pointerSize) {
+        final AsyncPromise<Layout> layout = getLayout(thread, pointerSize);
+        AsyncPromise<byte[]> header = myGdb.readMemory(thread, 0, "&" + ALLGS, 2 * pointerSize, null);
+        onRead(header, result, new Consumer<byte[]>() {
+          @Override
+          public void consume(byte[] bytes) {
+            if (bytes.length < 2 * pointerSize) {
+              result.setResult(Collections.<Goroutine>emptyList());
+              return;
+            }
+            final long array = GdbGoValueRenderer.readWord(bytes, 0, pointerSize);
+            long count = GdbGoValueRenderer.readWord(bytes, pointerSize, pointerSize);
+            final int length = (int)Math.min(count, MAX_GOROUTINES);
+            layout.done(new Consumer<Layout>() {
+              @Override
+              public void consume(Layout layout) {
+                readGoroutines(thread, array, length, pointerSize, layout, result);
+              }
+            });
+            layout.rejected(new Consumer<Throwable>() {
+              @Override
+              public void consume(Throwable error) {
+                result.setResult(Collections.<Goroutine>emptyList());
+              }
+            });
+          }
+        });
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Evaluates the offsets of the g fields on first use. A failed evaluation is tried again by the next listing, the
+   * runtime may not have been loaded yet.
+   */
+  @NotNull
+  private synchronized AsyncPromise<Layout> getLayout(int thread, final int pointerSize) {
+    if (myLayout != null) {
+      return myLayout;
+    }
+    final AsyncPromise<Layout> result = new AsyncPromise<Layout>();
+    myLayout = result;
+    result.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        synchronized (GdbGoroutines.this) {
+          if (myLayout == result) {
+            myLayout = null;
+          }
+        }
+      }
+    });
+
+    final long[] addresses = new long[LAYOUT_EXPRESSIONS.length];
+    final AtomicInteger remaining = new AtomicInteger(addresses.length);
+    for (int i = 0; i < addresses.length; i++) {
+      final int index = i;
+      String command = "-data-evaluate-expression --thread " + thread + " --frame 0 " +
+                       GdbMiUtil.formatGdbString(LAYOUT_EXPRESSIONS[i]);
+      AsyncPromise<GdbEvent> value = myGdb.sendCommandAsync(command, null, Gdb.DEFAULT_COMMAND_TIMEOUT);
+      value.done(new Consumer<GdbEvent>() {
+        @Override
+        public void consume(GdbEvent event) {
+          Long address = event instanceof GdbExpressionValue
+                         ? GdbGoValueRenderer.parseAddress(((GdbExpressionValue)event).value) : null;
+          addresses[index] = address != null ? address : -1;
+          if (remaining.decrementAndGet() == 0) {
+            onLayoutEvaluated(addresses, pointerSize, result);
+          }
+        }
+      });
+      value.rejected(new Consumer<Throwable>() {
+        @Override
+        public void consume(Throwable error) {
+          addresses[index] = -1;
+          if (remaining.decrementAndGet() == 0) {
+            onLayoutEvaluated(addresses, pointerSize, result);
+          }
+        }
+      });
+    }
+    return result;
+  }
+
+  private static void onLayoutEvaluated(@NotNull long[] addresses, int pointerSize, @NotNull AsyncPromise<Layout> result) {
+    Layout layout = computeLayout(addresses, pointerSize);
+    if (layout == null) {
+      result.setError("Goroutines are not available");
+      return;
+    }
+    result.setResult(layout);
+  }
+
+  /**
+   * Computes the offsets of the g fields from the addresses of the LAYOUT_EXPRESSIONS, -1 for those that could not be
+   * evaluated.
+   *
+   * @return The layout, or null if the addresses do not describe a g structure.
+   */
+  @Nullable
+  static Layout computeLayout(@NotNull long[] addresses, int pointerSize) {
+    long base = addresses[0];
+    int[] offsets = new int[addresses.length - 1];
+    for (int i = 0; i < offsets.length; i++) {
+      long offset = addresses[i + 1] - base;
+      if (base <= 0 || addresses[i + 1] < 0 || offset < 0 || offset > 4096) {
+        // Not a Go program, or a runtime we do not know
+        LOG.info("Goroutines are not available: cannot evaluate " + LAYOUT_EXPRESSIONS[i + 1]);
+        return null;
+      }
+      offsets[i] = (int)offset;
+    }
+    return new Layout(offsets[0], offsets[1], offsets[2], offsets[3], pointerSize);
+  }
+
+  private void readGoroutines(final int thread, long array, int length, final int pointerSize, @NotNull final Layout layout,
+                              @NotNull final AsyncPromise<List<Goroutine>> result) {
+    if (length <= 0) {
+      result.setResult(Collections.<Goroutine>emptyList());
+      return;
+    }
+    String address = "0x" + Long.toHexString(array);
+    AsyncPromise<byte[]> pointers = myGdb.readMemory(thread, 0, address, length * pointerSize, null);
+    onRead(pointers, result, new Consumer<byte[]>() {
+      @Override
+      public void consume(byte[] bytes) {
+        long[] addresses = new long[bytes.length / pointerSize];
+        for (int i = 0; i < addresses.length; i++) {
+          addresses[i] = GdbGoValueRenderer.readWord(bytes, i * pointerSize, pointerSize);
+        }
+        readStructures(thread, addresses, pointerSize, layout, result);
+      }
+    });
+  }
+
+  /**
+   * Reads the g structures, merging those lying close to each other into one read.
+   */
+  private void readStructures(int thread, @NotNull long[] addresses, final int pointerSize, @NotNull final Layout layout,
+                              @NotNull final AsyncPromise<List<Goroutine>> result) {
+    final long[] sortedAddresses = sortAddresses(addresses);
+    List<long[]> blocks = getBlocks(sortedAddresses, layout);
+    if (blocks.isEmpty()) {
+      result.setResult(Collections.<Goroutine>emptyList());
+      return;
+    }
+
+    final List<Goroutine> goroutines = Collections.synchronizedList(new ArrayList<Goroutine>());
+    final AtomicInteger remaining = new AtomicInteger(blocks.size());
+    for (final long[] block : blocks) {
+      String address = "0x" + Long.toHexString(block[0]);
+      AsyncPromise<byte[]> read = myGdb.readMemory(thread, 0, address, (int)(block[1] - block[0]), null);
+      read.done(new Consumer<byte[]>() {
+        @Override
+        public void consume(byte[] bytes) {
+          decode(block[0], bytes, sortedAddresses, pointerSize, layout, goroutines);
+          if (remaining.decrementAndGet() == 0) onStructuresRead(goroutines, result);
+        }
+      });
+      read.rejected(new Consumer<Throwable>() {
+        @Override
+        public void consume(Throwable error) {
+          if (remaining.decrementAndGet() == 0) onStructuresRead(goroutines, result);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns the given g addresses sorted, without the nil ones.
+   */
+  @NotNull
+  static long[] sortAddresses(@NotNull long[] addresses) {
+    long[] sorted = addresses.clone();
+    Arrays.sort(sorted);
+    int first = 0;
+    while (first < sorted.length && sorted[first] == 0) first++;
+    return Arrays.copyOfRange(sorted, first, sorted.length);
+  }
+
+  /**
+   * Groups the g structures at the given sorted addresses into blocks of memory of at most MAX_READ_SIZE bytes.
+   *
+   * @return The start and end addresses of the blocks.
+   */
+  @NotNull
+  static List<long[]> getBlocks(@NotNull long[] sortedAddresses, @NotNull Layout layout) {
+    List<long[]> blocks = new ArrayList<long[]>();
+    for (long address : sortedAddresses) {
+      long start = address + layout.start;
+      if (blocks.isEmpty() || start + layout.size - blocks.get(blocks.size() - 1)[0] > MAX_READ_SIZE) {
+        blocks.add(new long[]{start, start + layout.size});
+      }
+      else {
+        blocks.get(blocks.size() - 1)[1] = start + layout.size;
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * Decodes the goroutines whose fields lie in the given block of memory.
+   */
+  static void decode(long blockStart, @NotNull byte[] bytes, @NotNull long[] addresses, int pointerSize,
+                             @NotNull Layout layout, @NotNull List<Goroutine> goroutines) {
+    for (long address : addresses) {
+      long offset = address + layout.start - blockStart;
+      if (offset < 0 || offset + layout.size > bytes.length) continue;
+      int base = (int)(address - blockStart);
+      int status = (int)GdbGoValueRenderer.readWord(bytes, base + layout.status, 4) & ~STATUS_SCAN;
+      if (status == STATUS_IDLE || status == STATUS_DEAD || status == STATUS_RUNNING) continue;
+      goroutines.add(new Goroutine(GdbGoValueRenderer.readWord(bytes, base + layout.goid, 8), status,
+                                   GdbGoValueRenderer.readWord(bytes, base + layout.pc, pointerSize),
+                                   GdbGoValueRenderer.readWord(bytes, base + layout.sp, pointerSize)));
+    }
+  }
+
+  private void onStructuresRead(@NotNull List<Goroutine> goroutines, @NotNull AsyncPromise<List<Goroutine>> result) {
+    List<Goroutine> sorted;
+    synchronized (goroutines) {
+      sorted = new ArrayList<Goroutine>(goroutines);
+    }
+    Collections.sort(sorted, new Comparator<Goroutine>() {
+      @Override
+      public int compare(@NotNull Goroutine o1, @NotNull Goroutine o2) {
+        return o1.id < o2.id ? -1 : o1.id == o2.id ? 0 : 1;
+      }
+    });
+
+    // Forget the stacks of goroutines that have exited
+    Set<Long> ids = new HashSet<Long>();
+    for (Goroutine goroutine : sorted) {
+      ids.add(goroutine.id);
+    }
+    myStacks.keySet().retainAll(ids);
+    result.setResult(sorted);
+  }
+
+  /**
+   * Gets the stack of a goroutine, from the cache if its saved context has not changed since it was computed.
+   *
+   * @param thread A stopped thread whose registers are borrowed to unwind the goroutine.
+   */
+  @NotNull
+  AsyncPromise<List<GdbStackFrame>> getStack(int thread, @NotNull final Goroutine goroutine) {
+    final AsyncPromise<List<GdbStackFrame>> result = new AsyncPromise<List<GdbStackFrame>>();
+    CachedStack cached = myStacks.get(goroutine.id);
+    if (cached != null && cached.pc == goroutine.pc && cached.sp == goroutine.sp) {
+      result.setResult(cached.frames);
+      return result;
+    }
+
+    // The commands run as a batch so that nothing else runs with the borrowed registers. The registers are only changed
+    // once both are saved, and restored whenever they have been saved
+    String prefix = "-data-evaluate-expression --thread " + thread + " --frame 0 ";
+    List<String> commands = Arrays.asList(prefix + "\"$go_saved_pc = $pc, $go_saved_sp = $sp\"",
+                                          prefix + "\"$sp = 0x" + Long.toHexString(goroutine.sp) + "\"",
+                                          prefix + "\"$pc = 0x" + Long.toHexString(goroutine.pc) + "\"",
+                                          "-stack-list-frames --thread " + thread);
+    List<String> cleanup = Arrays.asList(prefix + "\"$pc = $go_saved_pc\"",
+                                         prefix + "\"$sp = $go_saved_sp\"");
+    AsyncPromise<List<GdbEvent>> batch = myGdb.sendCommandBatch(commands, cleanup);
+    batch.done(new Consumer<List<GdbEvent>>() {
+      @Override
+      public void consume(List<GdbEvent> events) {
+        GdbEvent event = events.get(events.size() - 1);
+        if (!(event instanceof GdbStackTrace) || ((GdbStackTrace)event).stack == null) {
+          LOG.warn("Unexpected event " + event + " received from -stack-list-frames request");
+          result.setError("Unexpected data received from GDB");
+          return;
+        }
+        List<GdbStackFrame> frames = ((GdbStackTrace)event).stack;
+        myStacks.put(goroutine.id, new CachedStack(goroutine.pc, goroutine.sp, frames));
+        result.setResult(frames);
+      }
+    });
+    batch.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        LOG.info("Cannot unwind goroutine " + goroutine.id + ": " + error.getMessage());
+        result.setError(error);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Passes the bytes of a successful read to the consumer, or ends the listing with no goroutines on failure.
+   */
+  private static void onRead(@NotNull AsyncPromise<byte[]> read, @NotNull final AsyncPromise<List<Goroutine>> result,
+                             @NotNull Consumer<byte[]> consumer) {
+    read.done(consumer);
+    read.rejected(new Consumer<Throwable>() {
+      @Override
+      public void consume(Throwable error) {
+        result.setResult(Collections.<Goroutine>emptyList());
+      }
+    });
+  }
+}
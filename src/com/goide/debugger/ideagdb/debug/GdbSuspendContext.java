@@ -25,13 +25,17 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 public class GdbSuspendContext extends XSuspendContext {
+  private final Gdb myGdb;
+  @NotNull private final GdbStoppedEvent myStopEvent;
   private GdbExecutionStack myStack;
-  @NotNull private final GdbExecutionStack[] myStacks;
+  // The stacks of the threads, followed by those of the goroutines once they are listed
+  @NotNull private volatile XExecutionStack[] myStacks;
 
   /**
    * @param gdb       Handle to the GDB instance.
@@ -39,8 +43,11 @@ public class GdbSuspendContext extends XSuspendContext {
    * @param threads   Thread information, if available.
    */
   public GdbSuspendContext(Gdb gdb, @NotNull GdbStoppedEvent stopEvent, @Nullable List<GdbThread> threads) {
+    myGdb = gdb;
+    myStopEvent = stopEvent;
+
     // Add all the threads to our list of stacks
-    List<GdbExecutionStack> stacks = new ArrayList<GdbExecutionStack>();
+    List<XExecutionStack> stacks = new ArrayList<XExecutionStack>();
     if (threads != null) {
       // Sort the list of threads by ID
       Collections.sort(threads, new Comparator<GdbThread>() {
@@ -68,7 +75,22 @@ public class GdbSuspendContext extends XSuspendContext {
       stacks.add(0, myStack);
     }
 
-    myStacks = stacks.toArray(new GdbExecutionStack[stacks.size()]);
+    myStacks = stacks.toArray(new XExecutionStack[stacks.size()]);
+  }
+
+  /**
+   * Adds the stacks of goroutines after those of the threads; they are unwound on the stopped thread. The goroutines
+   * are listed after the context is shown, so the views have to be rebuilt to show them.
+   *
+   * @param goroutines The goroutines of the program.
+   * @param parked     The goroutines that are not running on a thread.
+   */
+  public void addGoroutines(@NotNull GdbGoroutines goroutines, @NotNull List<GdbGoroutines.Goroutine> parked) {
+    List<XExecutionStack> stacks = new ArrayList<XExecutionStack>(Arrays.asList(myStacks));
+    for (GdbGoroutines.Goroutine goroutine : parked) {
+      stacks.add(new GdbGoroutineExecutionStack(myGdb, goroutines, goroutine, myStopEvent.threadId));
+    }
+    myStacks = stacks.toArray(new XExecutionStack[stacks.size()]);
   }
 
   @Nullable
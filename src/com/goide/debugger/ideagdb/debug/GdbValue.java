@@ -26,9 +26,11 @@ import com.goide.debugger.gdb.messages.GdbVariableObjects;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Consumer;
 import com.intellij.xdebugger.frame.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.AsyncPromise;
 
 import javax.swing.*;
 
@@ -36,18 +38,47 @@ public class GdbValue extends XValue {
   private static final Icon VAR_ICON = GoIcons.VARIABLE; // todo: detect GoIcons.CONSTANT?
   private static final Logger LOG = Logger.getInstance(GdbValue.class);
 
+  /**
+   * Number of children requested from GDB at once; further children are loaded on the "more" link of the node.
+   */
+  public static final int CHILDREN_PAGE_SIZE =
+    Math.max(1, Integer.getInteger("go.debugger.children.page.size", XCompositeNode.MAX_CHILDREN_TO_SHOW));
+
   private final Gdb myGdb;
   private final GdbVariableObject myVariableObject;
+  // The frame of the value and its expression there, if known
+  private final int myThread;
+  private final int myFrame;
+  @Nullable private final String myPathExpression;
+  // The node the children were last computed for, and the index of the first child it does not show yet
+  @Nullable private XCompositeNode myChildrenNode;
+  private int myNextChild;
 
-  public GdbValue(@NotNull Gdb gdb, @NotNull GdbVariableObject o) {
+  /**
+   * Constructor.
+   *
+   * @param gdb            Handle to the GDB instance.
+   * @param o              The variable object of the value.
+   * @param thread         The thread of the value.
+   * @param frame          The frame of the value.
+   * @param pathExpression The expression of the value in its frame, or null if it is not known.
+   */
+  public GdbValue(@NotNull Gdb gdb, @NotNull GdbVariableObject o, int thread, int frame, @Nullable String pathExpression) {
     myGdb = gdb;
     myVariableObject = o;
+    myThread = thread;
+    myFrame = frame;
+    myPathExpression = pathExpression;
   }
 
   @Override
   public void computePresentation(@NotNull XValueNode node, @NotNull XValuePlace place) {
+    if (GdbGoValueRenderer.render(myGdb, myVariableObject, myThread, myFrame, myPathExpression, node, VAR_ICON)) {
+      return;
+    }
+
     String goType = getGoObjectType(myVariableObject.type);
-    Boolean hasChildren = myVariableObject.numChildren != null && myVariableObject.numChildren > 0;
+    boolean hasChildren = hasChildren(myVariableObject);
 
     if (goType.equals("string")) {
       handleGoString(node);
@@ -58,7 +89,7 @@ public class GdbValue extends XValue {
   }
 
   public static String getGoObjectType(String originalType) {
-    if (originalType.contains("struct string")) {
+    if (originalType.contains("struct string") || originalType.startsWith("struct []")) {
       return originalType.replace("struct ", "");
     }
 
@@ -72,27 +103,64 @@ public class GdbValue extends XValue {
     return new GdbValueModifier(myGdb, myVariableObject);
   }
 
+  /**
+   * Returns whether the value has children to show, including dynamic variable objects which only know whether there
+   * are more children.
+   */
+  static boolean hasChildren(@NotNull GdbVariableObject variableObject) {
+    return variableObject.numChildren != null && variableObject.numChildren > 0 ||
+           Boolean.TRUE.equals(variableObject.hasMore);
+  }
+
+  /**
+   * Adds the next page of children to the node. The node calls this again when the user asks for more children.
+   * Elements of slices are paged by their index, other values by the children of their variable object.
+   */
   @Override
   public void computeChildren(@NotNull final XCompositeNode node) {
-    if (myVariableObject.numChildren == null || myVariableObject.numChildren <= 0) {
+    boolean slice = myPathExpression != null &&
+                    GdbGoValueRenderer.getKind(myVariableObject.type) == GdbGoValueRenderer.Kind.Slice;
+    if (!slice && !hasChildren(myVariableObject)) {
       node.addChildren(XValueChildrenList.EMPTY, true);
+      return;
     }
 
-    // Get the children from GDB
-    myGdb.sendCommand("-var-list-children --all-values " +
-                      GdbMiUtil.formatGdbString(myVariableObject.name), new Gdb.GdbEventCallback() {
+    // Get the children from GDB; a node other than the last one starts from the first child again
+    final int from;
+    synchronized (this) {
+      if (myChildrenNode != node) {
+        myChildrenNode = node;
+        myNextChild = 0;
+      }
+      from = myNextChild;
+    }
+    Gdb.Obsolescent requester = new Gdb.Obsolescent() {
       @Override
-      public void onGdbCommandCompleted(GdbEvent event) {
-        onGdbChildrenReady(event, node);
+      public boolean isObsolete() {
+        return node.isObsolete();
+      }
+    };
+    if (slice) {
+      computeSliceElements(node, from, requester);
+      return;
+    }
+
+    final int to = from + CHILDREN_PAGE_SIZE;
+    String command = "-var-list-children --all-values " + GdbMiUtil.formatGdbString(myVariableObject.name) + " " +
+                     from + " " + to;
+    AsyncPromise<GdbEvent> children = myGdb.sendCommandAsync(command, requester, Gdb.DEFAULT_COMMAND_TIMEOUT);
+    children.done(new Consumer<GdbEvent>() {
+      @Override
+      public void consume(GdbEvent event) {
+        if (!node.isObsolete()) {
+          onGdbChildrenReady(event, node, to);
+        }
       }
     });
+    children.rejected(new ErrorConsumer(node));
   }
 
-  private void onGdbChildrenReady(GdbEvent event, XCompositeNode node) {
-    if (event instanceof GdbErrorEvent) {
-      node.setErrorMessage(((GdbErrorEvent) event).message);
-      return;
-    }
+  private void onGdbChildrenReady(GdbEvent event, XCompositeNode node, int to) {
     if (!(event instanceof GdbVariableObjects)) {
       node.setErrorMessage("Unexpected data received from GDB");
       LOG.warn("Unexpected event " + event + " received from -var-list-children request");
@@ -104,14 +172,157 @@ public class GdbValue extends XValue {
     if (variables.objects == null || variables.objects.isEmpty()) {
       // No data
       node.addChildren(XValueChildrenList.EMPTY, true);
+      return;
     }
 
     // Build a XValueChildrenList
     XValueChildrenList children = new XValueChildrenList(variables.objects.size());
     for (GdbVariableObject variable : variables.objects) {
-      children.add(variable.expression, new GdbValue(myGdb, variable));
+      GdbValue child = new GdbValue(myGdb, variable, myThread, myFrame, getChildPath(variable.expression));
+      children.add(variable.expression, child);
+    }
+
+    // The response only counts the children of the page. Dynamic variable objects do not know the number of their
+    // children either, so whether there are more is taken from has_more
+    int remaining = Math.max(0, (myVariableObject.numChildren != null ? myVariableObject.numChildren : 0) - to);
+    if (variables.hasMore != null) {
+      remaining = !variables.hasMore ? 0 : remaining > 0 ? remaining : CHILDREN_PAGE_SIZE;
+    }
+    addPage(node, children, to, remaining);
+  }
+
+  /**
+   * Lists the page of slice elements starting at the given index. Without pretty-printers GDB shows a slice as its
+   * {array, len, cap} header, so the length is read from the header and the page is listed as the children of an array
+   * of the elements in the page.
+   */
+  private void computeSliceElements(@NotNull final XCompositeNode node, final int from,
+                                    @NotNull final Gdb.Obsolescent requester) {
+    assert myPathExpression != null;
+    final String path = myPathExpression;
+    AsyncPromise<Integer> pointerSize = myGdb.getPointerSize();
+    pointerSize.done(new Consumer<Integer>() {
+      @Override
+      public void consume(final Integer size) {
+        if (node.isObsolete()) return;
+        AsyncPromise<byte[]> header = myGdb.readMemory(myThread, myFrame, "&(" + path + ")", 3 * size, requester);
+        header.done(new Consumer<byte[]>() {
+          @Override
+          public void consume(byte[] bytes) {
+            if (node.isObsolete()) return;
+            if (bytes.length < 3 * size) {
+              node.setErrorMessage("Unexpected data received from GDB");
+              return;
+            }
+            onSliceLengthReady(node, path, from, GdbGoValueRenderer.readWord(bytes, size, size), requester);
+          }
+        });
+        header.rejected(new ErrorConsumer(node));
+      }
+    });
+    pointerSize.rejected(new ErrorConsumer(node));
+  }
+
+  private void onSliceLengthReady(@NotNull final XCompositeNode node, @NotNull final String path, final int from,
+                                  final long length, @NotNull final Gdb.Obsolescent requester) {
+    if (from >= length) {
+      node.addChildren(XValueChildrenList.EMPTY, true);
+      return;
     }
-    node.addChildren(children, true);
+
+    // The variable object of the page is cached by Gdb like those of other expressions
+    final int to = (int)Math.min(length, from + CHILDREN_PAGE_SIZE);
+    String page = "(" + path + ").array[" + from + "]@" + (to - from);
+    AsyncPromise<GdbVariableObjects> array = myGdb.evaluateExpression(myThread, myFrame, page);
+    array.done(new Consumer<GdbVariableObjects>() {
+      @Override
+      public void consume(GdbVariableObjects objects) {
+        if (node.isObsolete()) return;
+        if (objects.objects.isEmpty()) {
+          node.setErrorMessage("Unexpected data received from GDB");
+          return;
+        }
+        String command = "-var-list-children --all-values " + GdbMiUtil.formatGdbString(objects.objects.get(0).name);
+        AsyncPromise<GdbEvent> elements = myGdb.sendCommandAsync(command, requester, Gdb.DEFAULT_COMMAND_TIMEOUT);
+        elements.done(new Consumer<GdbEvent>() {
+          @Override
+          public void consume(GdbEvent event) {
+            if (!node.isObsolete()) {
+              onSliceElementsReady(event, node, path, from, to, length);
+            }
+          }
+        });
+        elements.rejected(new ErrorConsumer(node));
+      }
+    });
+    array.rejected(new ErrorConsumer(node));
+  }
+
+  private void onSliceElementsReady(GdbEvent event, XCompositeNode node, String path, int from, int to, long length) {
+    if (!(event instanceof GdbVariableObjects) || ((GdbVariableObjects)event).objects == null) {
+      node.setErrorMessage("Unexpected data received from GDB");
+      LOG.warn("Unexpected event " + event + " received from -var-list-children request");
+      return;
+    }
+
+    // The elements of the page array are numbered from 0; they are shown with their index in the slice
+    GdbVariableObjects variables = (GdbVariableObjects)event;
+    XValueChildrenList children = new XValueChildrenList(variables.objects.size());
+    for (int i = 0; i < variables.objects.size(); i++) {
+      int index = from + i;
+      String childPath = "(" + path + ").array[" + index + "]";
+      children.add(String.valueOf(index), new GdbValue(myGdb, variables.objects.get(i), myThread, myFrame, childPath));
+    }
+    addPage(node, children, to, (int)Math.min(Integer.MAX_VALUE, length - to));
+  }
+
+  /**
+   * Adds a page of children which ends before the given index to the node.
+   *
+   * @param remaining The number of children after the page, or an estimate if it is not known.
+   */
+  private void addPage(@NotNull XCompositeNode node, @NotNull XValueChildrenList children, int to, int remaining) {
+    synchronized (this) {
+      if (myChildrenNode == node) {
+        myNextChild = to;
+      }
+    }
+    if (remaining > 0) {
+      node.addChildren(children, false);
+      node.tooManyChildren(remaining);
+    }
+    else {
+      node.addChildren(children, true);
+    }
+  }
+
+  /**
+   * Shows the message of a failed request in the node.
+   */
+  private static class ErrorConsumer implements Consumer<Throwable> {
+    @NotNull private final XCompositeNode myNode;
+
+    ErrorConsumer(@NotNull XCompositeNode node) {
+      myNode = node;
+    }
+
+    @Override
+    public void consume(Throwable error) {
+      if (!myNode.isObsolete()) {
+        myNode.setErrorMessage(String.valueOf(error.getMessage()));
+      }
+    }
+  }
+
+  /**
+   * Returns the expression of a child with the given expression relative to this value, if it can be formed.
+   */
+  @Nullable
+  private String getChildPath(@Nullable String childExpression) {
+    if (myPathExpression == null || childExpression == null) return null;
+    if (StringUtil.isJavaIdentifier(childExpression)) return "(" + myPathExpression + ")." + childExpression;
+    if (StringUtil.isNotNegativeNumber(childExpression)) return "(" + myPathExpression + ")[" + childExpression + "]";
+    return null;
   }
 
   private void handleGoString(@NotNull final XValueNode node) {
@@ -132,8 +343,7 @@ public class GdbValue extends XValue {
       node.setPresentation(VAR_ICON, "string (" + value.length() + ")", value, false);
     }
     else {
-      Boolean hasChildren = myVariableObject.numChildren != null && myVariableObject.numChildren > 0;
-      node.setPresentation(VAR_ICON, "unknown", notNull(myVariableObject.value), hasChildren);
+      node.setPresentation(VAR_ICON, "unknown", notNull(myVariableObject.value), hasChildren(myVariableObject));
     }
   }
 
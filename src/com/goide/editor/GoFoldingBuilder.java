@@ -18,6 +18,7 @@ package com.goide.editor;
 
 import com.goide.GoParserDefinition;
 import com.goide.GoTypes;
+import com.goide.parser.GoLazyBlockElementType;
 import com.goide.psi.*;
 import com.intellij.codeInsight.folding.CodeFoldingSettings;
 import com.intellij.lang.ASTNode;
@@ -161,7 +162,7 @@ public class GoFoldingBuilder extends FoldingBuilderEx implements DumbAware {
     if (type == GoParserDefinition.LINE_COMMENT || type == GoParserDefinition.MULTILINE_COMMENT) {
       return CodeFoldingSettings.getInstance().COLLAPSE_DOC_COMMENTS;
     }
-    if (type == GoTypes.BLOCK && CodeFoldingSettings.getInstance().COLLAPSE_METHODS) {
+    if (GoLazyBlockElementType.isBlock(type) && CodeFoldingSettings.getInstance().COLLAPSE_METHODS) {
       ASTNode parent = node.getTreeParent();
       return parent != null && parent.getPsi() instanceof GoFunctionOrMethodDeclaration;
     }
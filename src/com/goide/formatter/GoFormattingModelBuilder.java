@@ -17,6 +17,7 @@
 package com.goide.formatter;
 
 import com.goide.GoLanguage;
+import com.goide.parser.GoLazyBlockElementType;
 import com.goide.psi.GoStatement;
 import com.goide.psi.GoType;
 import com.intellij.formatting.*;
@@ -79,6 +80,7 @@ public class GoFormattingModelBuilder implements FormattingModelBuilder {
       .beforeInside(RPAREN, IMPORT_DECLARATION).lineBreakInCode()
       .between(PARAMETERS, RESULT).spaces(1)
       .before(BLOCK).spaces(1)
+      .before(GoLazyBlockElementType.INSTANCE).spaces(1)
       .after(FUNC).spaces(1)
       .after(PACKAGE).spaces(1)
       .after(IMPORT).spaces(1)
@@ -131,6 +133,7 @@ public class GoFormattingModelBuilder implements FormattingModelBuilder {
   public static class GoFormattingBlock extends UserDataHolderBase implements ASTBlock {
     public static final TokenSet BLOCKS_TOKEN_SET = TokenSet.create(
       BLOCK,
+      GoLazyBlockElementType.INSTANCE,
       STRUCT_TYPE,
       INTERFACE_TYPE,
       SELECT_STATEMENT,
@@ -250,7 +253,7 @@ public class GoFormattingModelBuilder implements FormattingModelBuilder {
       IElementType parentType = myNode.getElementType();
       IElementType type = child.getElementType();
       if (type == SWITCH_START) return Indent.getNoneIndent();
-      if (parentType == BLOCK && type == SELECT_STATEMENT) return Indent.getNoneIndent();
+      if (GoLazyBlockElementType.isBlock(parentType) && type == SELECT_STATEMENT) return Indent.getNoneIndent();
       if (parentType == SELECT_STATEMENT && type == RBRACE) return Indent.getNormalIndent();
       if (parentType == ARGUMENT_LIST && type != LPAREN && type != RPAREN) return Indent.getNormalIndent();
       if ((parentType == EXPR_CASE_CLAUSE || parentType == TYPE_CASE_CLAUSE) && (type == CASE || type == DEFAULT)) return Indent.getNoneIndent();
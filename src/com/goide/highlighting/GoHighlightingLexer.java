@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.highlighting;
+
+import com.goide.GoTypes;
+import com.goide.lexer.GoLexer;
+import com.intellij.lexer.DelegateLexer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Editor highlighters relex a change starting from the closest preceding token lexed in the initial state and stop as soon
+ * as the new tokens and states match the old ones again. The only non-initial state of the Go lexer is the semicolon insertion
+ * state that follows identifiers, literals, closing brackets and some keywords, i.e. most tokens, and it differs from the
+ * initial state only by the zero-length synthetic semicolon emitted before a line break.
+ * <p/>
+ * Synthetic semicolons have no highlighting, so this lexer drops them and always starts in and reports the initial state:
+ * every token becomes a restart point and relexing after an edit is limited to the damaged tokens.
+ */
+public class GoHighlightingLexer extends DelegateLexer {
+  public GoHighlightingLexer() {
+    super(new GoLexer());
+  }
+
+  @Override
+  public void start(@NotNull CharSequence buffer, int startOffset, int endOffset, int initialState) {
+    super.start(buffer, startOffset, endOffset, 0);
+    skipSyntheticSemicolons();
+  }
+
+  @Override
+  public int getState() {
+    return 0;
+  }
+
+  @Override
+  public void advance() {
+    super.advance();
+    skipSyntheticSemicolons();
+  }
+
+  private void skipSyntheticSemicolons() {
+    while (getDelegate().getTokenType() == GoTypes.SEMICOLON_SYNTHETIC) {
+      getDelegate().advance();
+    }
+  }
+}
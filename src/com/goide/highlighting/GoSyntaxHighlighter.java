@@ -18,7 +18,6 @@ package com.goide.highlighting;
 
 import com.goide.GoParserDefinition;
 import com.goide.GoTypes;
-import com.goide.lexer.GoLexer;
 import com.intellij.lexer.Lexer;
 import com.intellij.openapi.editor.colors.TextAttributesKey;
 import com.intellij.openapi.fileTypes.SyntaxHighlighterBase;
@@ -54,7 +53,7 @@ public class GoSyntaxHighlighter extends SyntaxHighlighterBase {
 
   @NotNull
   public Lexer getHighlightingLexer() {
-    return new GoLexer();
+    return new GoHighlightingLexer();
   }
 
   @NotNull
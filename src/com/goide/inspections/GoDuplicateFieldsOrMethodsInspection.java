@@ -35,28 +35,15 @@ public class GoDuplicateFieldsOrMethodsInspection extends GoInspectionBase {
                                      @SuppressWarnings({"UnusedParameters", "For future"}) @NotNull LocalInspectionToolSession session) {
     return new GoVisitor() {
       @Override
-      public void visitStructType(@NotNull final GoStructType type) {
-        final List<GoNamedElement> fields = ContainerUtil.newArrayList();
-        type.accept(new GoRecursiveVisitor() {
-          @Override
-          public void visitFieldDefinition(@NotNull GoFieldDefinition o) {
-            addField(o);
+      public void visitStructType(@NotNull GoStructType type) {
+        List<GoNamedElement> fields = ContainerUtil.newArrayList();
+        for (GoFieldDeclaration declaration : type.getFieldDeclarationList()) {
+          for (GoFieldDefinition field : declaration.getFieldDefinitionList()) {
+            if (!field.isBlank()) fields.add(field);
           }
-
-          @Override
-          public void visitAnonymousFieldDefinition(@NotNull GoAnonymousFieldDefinition o) {
-            addField(o);
-          }
-
-          private void addField(@NotNull GoNamedElement o) {
-            if (!o.isBlank()) fields.add(o);
-          }
-
-          @Override
-          public void visitType(@NotNull GoType o) {
-            if (o == type) super.visitType(o);
-          }
-        });
+          GoAnonymousFieldDefinition anon = declaration.getAnonymousFieldDefinition();
+          if (anon != null && !anon.isBlank()) fields.add(anon);
+        }
         check(fields, holder, "field");
         super.visitStructType(type);
       }
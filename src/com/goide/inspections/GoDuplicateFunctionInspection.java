@@ -18,63 +18,47 @@ package com.goide.inspections;
 
 import com.goide.psi.GoFile;
 import com.goide.psi.GoFunctionDeclaration;
-import com.goide.psi.GoRecursiveVisitor;
 import com.goide.psi.GoSignature;
-import com.goide.psi.impl.GoPsiImplUtil;
-import com.goide.util.GoUtil;
+import com.goide.psi.impl.GoPackageDeclarationTable;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Condition;
 import com.intellij.psi.PsiElement;
 import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
-import java.util.List;
 
 import static com.goide.GoConstants.INIT;
 import static com.goide.GoConstants.MAIN;
 
 public class GoDuplicateFunctionInspection extends GoInspectionBase {
   @Override
-  protected void checkFile(@NotNull GoFile file, @NotNull final ProblemsHolder problemsHolder) {
-    final MultiMap<String, GoFunctionDeclaration> map = MultiMap.create();
-    List<GoFile> files = GoPsiImplUtil.getAllPackageFiles(file);
-    for (GoFile goFile : files) {
-      if (GoUtil.allowed(goFile)) {
-        for (GoFunctionDeclaration function : goFile.getFunctions()) {
-          map.putValue(function.getName(), function);
-        }
+  protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder, @NotNull GoInspectionContext context) {
+    GoPackageDeclarationTable table = context.getDeclarationTable();
+    for (final GoFunctionDeclaration o : file.getFunctions()) {
+      if (o.isBlank()) continue;
+      String name = o.getName();
+      if (name == null) continue;
+      Collection<GoFunctionDeclaration> byKey = table.getFunctions(name);
+      if (INIT.equals(name) & zeroArity(o)) continue;
+      if ((MAIN.equals(name) && MAIN.equals(o.getContainingFile().getPackageName()) && zeroArity(o))) {
+        byKey = ContainerUtil.filter(byKey, new Condition<GoFunctionDeclaration>() {
+          @Override
+          public boolean value(GoFunctionDeclaration declaration) {
+            return Comparing.equal(declaration.getContainingFile(), o.getContainingFile());
+          }
+        });
       }
-    }
-
-    file.accept(new GoRecursiveVisitor() {
-      @Override
-      public void visitFunctionDeclaration(@NotNull final GoFunctionDeclaration o) {
-        if (o.isBlank()) return;
-        String name = o.getName();
-        if (name == null) return;
-        Collection<GoFunctionDeclaration> byKey = map.get(name);
-        if (INIT.equals(name) & zeroArity(o)) return;
-        if ((MAIN.equals(name) && MAIN.equals(o.getContainingFile().getPackageName()) && zeroArity(o))) {
-          byKey = ContainerUtil.filter(byKey, new Condition<GoFunctionDeclaration>() {
-            @Override
-            public boolean value(GoFunctionDeclaration declaration) {
-              return Comparing.equal(declaration.getContainingFile(), o.getContainingFile());
-            }
-          });
-        }
-        if (byKey.size() > 1) {
-          PsiElement identifier = o.getNameIdentifier();
-          problemsHolder.registerProblem(identifier == null ? o : identifier, "Duplicate function name");
-        }
+      if (byKey.size() > 1) {
+        PsiElement identifier = o.getNameIdentifier();
+        problemsHolder.registerProblem(identifier == null ? o : identifier, "Duplicate function name");
       }
+    }
+  }
 
-      private boolean zeroArity(@NotNull GoFunctionDeclaration o) {
-        GoSignature signature = o.getSignature();
-        return signature == null || signature.getParameters().getParameterDeclarationList().isEmpty();
-      }
-    });
+  private static boolean zeroArity(@NotNull GoFunctionDeclaration o) {
+    GoSignature signature = o.getSignature();
+    return signature == null || signature.getParameters().getParameterDeclarationList().isEmpty();
   }
 }
@@ -18,16 +18,11 @@ package com.goide.inspections;
 
 import com.goide.psi.GoFile;
 import com.goide.psi.GoMethodDeclaration;
-import com.goide.psi.impl.GoPsiImplUtil;
-import com.goide.stubs.index.GoMethodIndex;
+import com.goide.psi.impl.GoPackageDeclarationTable;
 import com.goide.stubs.types.GoMethodDeclarationStubElementType;
-import com.goide.util.GoUtil;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Condition;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -35,25 +30,22 @@ import java.util.Collection;
 
 public class GoDuplicateMethodInspection extends GoInspectionBase {
   @Override
-  protected void checkFile(@NotNull GoFile file, @NotNull final ProblemsHolder problemsHolder) {
-    final Project project = file.getProject();
-    final String packageName = file.getPackageName();
-    final GlobalSearchScope scope = GoPsiImplUtil.packageScope(file);
-
+  protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder, @NotNull GoInspectionContext context) {
+    GoPackageDeclarationTable table = context.getDeclarationTable();
     for (final GoMethodDeclaration method : file.getMethods()) {
       if (method.isBlank()) continue;
 
-      final String methodName = method.getName();
+      String methodName = method.getName();
       if (methodName == null) continue;
       
       String typeText = GoMethodDeclarationStubElementType.calcTypeText(method);
       if (typeText == null) continue;
 
-      Collection<GoMethodDeclaration> declarations = GoMethodIndex.find(packageName + "." + typeText, project, scope);
-      declarations = ContainerUtil.filter(declarations, new Condition<GoMethodDeclaration>() {
+      Collection<GoMethodDeclaration> declarations = ContainerUtil.filter(table.getMethods(typeText, methodName),
+                                                                           new Condition<GoMethodDeclaration>() {
         @Override
         public boolean value(GoMethodDeclaration d) {
-          return !method.isEquivalentTo(d) && Comparing.equal(d.getName(), methodName) && GoUtil.allowed(d.getContainingFile());
+          return !method.isEquivalentTo(d);
         }
       });
 
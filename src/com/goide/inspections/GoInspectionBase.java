@@ -18,7 +18,6 @@ package com.goide.inspections;
 
 import com.goide.psi.GoFile;
 import com.goide.psi.GoVisitor;
-import com.goide.util.GoUtil;
 import com.intellij.codeInspection.*;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiFile;
@@ -33,7 +32,7 @@ abstract public class GoInspectionBase extends LocalInspectionTool {
   @Override
   public final PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly, @NotNull LocalInspectionToolSession session) {
     GoFile file = ObjectUtils.tryCast(session.getFile(), GoFile.class);
-    return file != null && GoUtil.allowed(file) ? buildGoVisitor(holder, session) : DUMMY_VISITOR;
+    return file != null && GoInspectionContext.getInstance(session, file).isAllowed() ? buildGoVisitor(holder, session) : DUMMY_VISITOR;
   }
 
   @NotNull
@@ -49,15 +48,19 @@ abstract public class GoInspectionBase extends LocalInspectionTool {
   }
 
   @NotNull
-  protected GoVisitor buildGoVisitor(@NotNull final ProblemsHolder holder, @SuppressWarnings({"UnusedParameters", "For future"}) @NotNull LocalInspectionToolSession session) {
+  protected GoVisitor buildGoVisitor(@NotNull final ProblemsHolder holder, @NotNull final LocalInspectionToolSession session) {
     return new GoVisitor() {
       @Override
       public void visitFile(PsiFile file) {
-        checkFile((GoFile)file, holder);
+        checkFile((GoFile)file, holder, GoInspectionContext.getInstance(session, (GoFile)file));
       }
     };
   }
 
+  protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder, @NotNull GoInspectionContext context) {
+    checkFile(file, problemsHolder);
+  }
+
   protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder) {
   }
 }
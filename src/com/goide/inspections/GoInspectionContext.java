@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections;
+
+import com.goide.psi.GoFile;
+import com.goide.psi.GoImportSpec;
+import com.goide.psi.impl.GoPackageDeclarationTable;
+import com.goide.psi.impl.GoPackageSymbolTable;
+import com.goide.util.GoUtil;
+import com.intellij.codeInspection.LocalInspectionToolSession;
+import com.intellij.openapi.util.AtomicNotNullLazyValue;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.containers.MultiMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Per-file data shared by all Go inspections running in one inspection session.
+ * The platform already visits every element once and dispatches it to the visitors of all enabled tools;
+ * this context makes sure the file-level facts those tools need are also computed once instead of once per tool.
+ * Tools of a session may run concurrently, so every value is computed lazily and thread-safely.
+ */
+public class GoInspectionContext {
+  private static final Key<GoInspectionContext> KEY = Key.create("GO_INSPECTION_CONTEXT");
+
+  @NotNull private final GoFile myFile;
+  private final AtomicNotNullLazyValue<Boolean> myAllowed = new AtomicNotNullLazyValue<Boolean>() {
+    @NotNull
+    @Override
+    protected Boolean compute() {
+      return GoUtil.allowed(myFile);
+    }
+  };
+  private final AtomicNotNullLazyValue<MultiMap<String, GoImportSpec>> myImportMap =
+    new AtomicNotNullLazyValue<MultiMap<String, GoImportSpec>>() {
+      @NotNull
+      @Override
+      protected MultiMap<String, GoImportSpec> compute() {
+        return myFile.getImportMap();
+      }
+    };
+
+  private GoInspectionContext(@NotNull GoFile file) {
+    myFile = file;
+  }
+
+  @NotNull
+  public static GoInspectionContext getInstance(@NotNull LocalInspectionToolSession session, @NotNull GoFile file) {
+    GoInspectionContext context = session.getUserData(KEY);
+    return context != null ? context : session.putUserDataIfAbsent(KEY, new GoInspectionContext(file));
+  }
+
+  @NotNull
+  public GoFile getFile() {
+    return myFile;
+  }
+
+  public boolean isAllowed() {
+    return myAllowed.getValue();
+  }
+
+  /**
+   * Do not modify the returned map, it's shared between inspections.
+   */
+  @NotNull
+  public MultiMap<String, GoImportSpec> getImportMap() {
+    return myImportMap.getValue();
+  }
+
+  @NotNull
+  public GoPackageSymbolTable getSymbolTable() {
+    return GoPackageSymbolTable.getInstance(myFile);
+  }
+
+  @NotNull
+  public GoPackageDeclarationTable getDeclarationTable() {
+    return GoPackageDeclarationTable.getInstance(myFile);
+  }
+}
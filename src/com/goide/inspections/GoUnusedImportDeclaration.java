@@ -19,14 +19,12 @@ package com.goide.inspections;
 import com.goide.codeInsight.imports.GoImportOptimizer;
 import com.goide.psi.GoFile;
 import com.goide.psi.GoImportSpec;
-import com.goide.psi.GoRecursiveVisitor;
 import com.intellij.codeInspection.*;
 import com.intellij.lang.ImportOptimizer;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiReference;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -52,8 +50,8 @@ public class GoUnusedImportDeclaration extends GoInspectionBase {
   };
 
   @Override
-  protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder) {
-    MultiMap<String, GoImportSpec> importMap = file.getImportMap();
+  protected void checkFile(@NotNull GoFile file, @NotNull ProblemsHolder problemsHolder, @NotNull GoInspectionContext context) {
+    MultiMap<String, GoImportSpec> importMap = context.getImportMap();
 
     for (PsiElement importIdentifier : GoImportOptimizer.findRedundantImportIdentifiers(importMap)) {
       problemsHolder.registerProblem(importIdentifier, "Redundant alias", ProblemHighlightType.LIKE_UNUSED_SYMBOL, OPTIMIZE_QUICK_FIX);
@@ -62,8 +60,8 @@ public class GoUnusedImportDeclaration extends GoInspectionBase {
     for (GoImportSpec duplicatedImportSpec : GoImportOptimizer.findDuplicatedEntries(importMap)) {
       problemsHolder.registerProblem(duplicatedImportSpec, "Redeclared import", ProblemHighlightType.GENERIC_ERROR, OPTIMIZE_QUICK_FIX);
     }
-    if (!problemsHolder.isOnTheFly()) {
-      resolveAllReferences(file);
+    if (!problemsHolder.isOnTheFly() && importMap.containsKey(".")) {
+      GoImportOptimizer.resolveDotImportCandidates(file);
     }
     for (PsiElement importEntry : GoImportOptimizer.filterUnusedImports(file, importMap).values()) {
       GoImportSpec spec = GoImportOptimizer.getImportSpec(importEntry);
@@ -74,15 +72,4 @@ public class GoUnusedImportDeclaration extends GoInspectionBase {
       }
     }
   }
-
-  private static void resolveAllReferences(@NotNull GoFile file) {
-    file.accept(new GoRecursiveVisitor() {
-      @Override
-      public void visitElement(@NotNull PsiElement o) {
-        for (PsiReference reference : o.getReferences()) {
-          reference.resolve();
-        }
-      }
-    });
-  }
 }
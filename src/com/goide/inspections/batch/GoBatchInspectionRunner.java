@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections.batch;
+
+import com.goide.GoLanguage;
+import com.goide.psi.GoFile;
+import com.intellij.codeHighlighting.HighlightDisplayLevel;
+import com.intellij.codeInspection.*;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.extensions.Extensions;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs Go local inspections over a set of files without an editor or a {@code GlobalInspectionContext}.
+ * Files are sharded across all cores; every file is walked once and the collected elements are fed to each tool,
+ * with one {@link LocalInspectionToolSession} per file so that tools share {@link com.goide.inspections.GoInspectionContext}.
+ * Package-level caches live on directories and are shared between the shards.
+ * Problems are handed to the {@link ResultConsumer} as soon as a file is done.
+ */
+public class GoBatchInspectionRunner {
+  public interface ResultConsumer {
+    /**
+     * Called from worker threads under a read action, implementations must be thread-safe.
+     */
+    void consume(@NotNull VirtualFile file, @NotNull LocalInspectionTool tool, @NotNull List<ProblemDescriptor> problems);
+  }
+
+  @NotNull private final Project myProject;
+  @NotNull private final List<LocalInspectionTool> myTools;
+  @NotNull private final Map<LocalInspectionTool, AtomicLong> myTimings = ContainerUtil.newLinkedHashMap();
+
+  public GoBatchInspectionRunner(@NotNull Project project, @NotNull List<LocalInspectionTool> tools) {
+    myProject = project;
+    myTools = tools;
+    for (LocalInspectionTool tool : tools) {
+      myTimings.put(tool, new AtomicLong());
+    }
+  }
+
+  /**
+   * Instantiates the Go local inspections that are enabled by default.
+   */
+  @NotNull
+  public static List<LocalInspectionTool> getDefaultTools() {
+    List<LocalInspectionTool> result = ContainerUtil.newArrayList();
+    for (LocalInspectionEP ep : Extensions.getExtensions(LocalInspectionEP.LOCAL_INSPECTION)) {
+      if (!GoLanguage.INSTANCE.getID().equals(ep.language) || !ep.enabledByDefault) continue;
+      InspectionProfileEntry tool = ep.instantiateTool();
+      if (tool instanceof LocalInspectionTool) result.add((LocalInspectionTool)tool);
+    }
+    return result;
+  }
+
+  /**
+   * Severity the tool is registered with in plugin.xml. Tools created from {@link #getDefaultTools()} are not wrapped, so
+   * their own {@link LocalInspectionTool#getDefaultLevel()} is always a warning.
+   */
+  @NotNull
+  public static HighlightDisplayLevel getLevel(@NotNull LocalInspectionTool tool) {
+    for (LocalInspectionEP ep : Extensions.getExtensions(LocalInspectionEP.LOCAL_INSPECTION)) {
+      if (!tool.getClass().getName().equals(ep.implementationClass)) continue;
+      HighlightDisplayLevel level = ep.level != null ? HighlightDisplayLevel.find(ep.level) : null;
+      if (level != null) return level;
+    }
+    return tool.getDefaultLevel();
+  }
+
+  /**
+   * @return false if the run was canceled
+   */
+  public boolean run(@NotNull Collection<VirtualFile> files,
+                     @Nullable ProgressIndicator indicator,
+                     @NotNull final ResultConsumer consumer) {
+    return JobLauncher.getInstance().invokeConcurrentlyUnderProgress(ContainerUtil.newArrayList(files), indicator, false,
+                                                                     new Processor<VirtualFile>() {
+      @Override
+      public boolean process(final VirtualFile file) {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            inspect(file, consumer);
+          }
+        });
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Total time spent in each tool, in milliseconds, summed over all threads.
+   */
+  @NotNull
+  public Map<LocalInspectionTool, Long> getTimings() {
+    Map<LocalInspectionTool, Long> result = ContainerUtil.newLinkedHashMap();
+    for (Map.Entry<LocalInspectionTool, AtomicLong> entry : myTimings.entrySet()) {
+      result.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().get()));
+    }
+    return result;
+  }
+
+  private void inspect(@NotNull VirtualFile virtualFile, @NotNull ResultConsumer consumer) {
+    PsiFile file = virtualFile.isValid() ? PsiManager.getInstance(myProject).findFile(virtualFile) : null;
+    if (!(file instanceof GoFile)) return;
+
+    final List<PsiElement> elements = ContainerUtil.newArrayList();
+    file.accept(new PsiRecursiveElementWalkingVisitor() {
+      @Override
+      public void visitElement(PsiElement element) {
+        elements.add(element);
+        super.visitElement(element);
+      }
+    });
+
+    InspectionManager manager = InspectionManager.getInstance(myProject);
+    LocalInspectionToolSession session = new LocalInspectionToolSession(file, 0, file.getTextLength());
+    for (LocalInspectionTool tool : myTools) {
+      ProgressIndicatorProvider.checkCanceled();
+      long start = System.nanoTime();
+      ProblemsHolder holder = new ProblemsHolder(manager, file, false);
+      PsiElementVisitor visitor = tool.buildVisitor(holder, false, session);
+      tool.inspectionStarted(session, false);
+      for (PsiElement element : elements) {
+        element.accept(visitor);
+      }
+      tool.inspectionFinished(session, holder);
+      List<ProblemDescriptor> problems = holder.hasResults() ? filterSuppressed(tool, holder.getResults()) : null;
+      myTimings.get(tool).addAndGet(System.nanoTime() - start);
+      if (problems != null && !problems.isEmpty()) consumer.consume(virtualFile, tool, problems);
+    }
+  }
+
+  @NotNull
+  private static List<ProblemDescriptor> filterSuppressed(@NotNull LocalInspectionTool tool, @NotNull List<ProblemDescriptor> problems) {
+    List<ProblemDescriptor> result = ContainerUtil.newArrayListWithCapacity(problems.size());
+    for (ProblemDescriptor problem : problems) {
+      PsiElement element = problem.getPsiElement();
+      if (element == null || !tool.isSuppressedFor(element)) result.add(problem);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections.batch;
+
+import com.goide.GoFileType;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationStarterEx;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Headless entry point for CI: {@code idea.sh goInspect <project path> [<output file>]}.
+ * Runs the Go inspections enabled by default over the project sources and writes JSON lines
+ * (see {@link GoJsonResultWriter}) to the output file or to stdout.
+ */
+public class GoInspectApplicationStarter extends ApplicationStarterEx {
+  @Override
+  public String getCommandName() {
+    return "goInspect";
+  }
+
+  @Override
+  public boolean isHeadless() {
+    return true;
+  }
+
+  @Override
+  public void premain(String[] args) {
+    if (!isValid(args)) {
+      printUsage();
+      System.exit(1);
+    }
+  }
+
+  @Override
+  public void main(String[] args) {
+    if (!isValid(args)) {
+      printUsage();
+      ApplicationManagerEx.getApplicationEx().exit(true, true);
+      System.exit(1);
+    }
+    int exitCode = 0;
+    try {
+      exitCode = run(args[1], args.length > 2 ? args[2] : null);
+    }
+    catch (Throwable e) {
+      e.printStackTrace();
+      exitCode = 1;
+    }
+    finally {
+      ApplicationManagerEx.getApplicationEx().exit(true, true);
+    }
+    System.exit(exitCode);
+  }
+
+  private static boolean isValid(@NotNull String[] args) {
+    return args.length >= 2 && args.length <= 3;
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: goInspect <project path> [<output file>]");
+  }
+
+  private static int run(@NotNull String projectPath, String outputPath) throws IOException {
+    final Project project = ProjectUtil.openOrImport(new File(projectPath).getAbsolutePath(), null, false);
+    if (project == null) {
+      System.err.println("Cannot open project " + projectPath);
+      return 1;
+    }
+    // the project is indexed after it is opened, file type queries need the indices
+    DumbService dumbService = DumbService.getInstance(project);
+    final List<VirtualFile> files = dumbService.runReadActionInSmartMode(new Computable<List<VirtualFile>>() {
+      @Override
+      public List<VirtualFile> compute() {
+        return ContainerUtil.newArrayList(FileTypeIndex.getFiles(GoFileType.INSTANCE, GlobalSearchScope.projectScope(project)));
+      }
+    });
+
+    PrintWriter out = outputPath != null
+                      ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputPath), "UTF-8")))
+                      : new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"));
+    try {
+      final GoJsonResultWriter writer = new GoJsonResultWriter(out);
+      final GoBatchInspectionRunner runner = new GoBatchInspectionRunner(project, GoBatchInspectionRunner.getDefaultTools());
+      final Ref<Boolean> completed = Ref.create(false);
+      ProgressManager.getInstance().runProcess(new Runnable() {
+        @Override
+        public void run() {
+          completed.set(runner.run(files, ProgressManager.getInstance().getProgressIndicator(), writer));
+        }
+      }, new ProgressIndicatorBase());
+      writer.writeTimings(runner.getTimings());
+      return completed.get() ? 0 : 1;
+    }
+    finally {
+      out.close();
+    }
+  }
+}
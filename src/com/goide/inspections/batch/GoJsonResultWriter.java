@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections.batch;
+
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemDescriptorUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one JSON object per line: a {@code problem} record for every problem and a {@code timing} record per inspection.
+ * Lines of one file are written together and flushed right away, so the output can be consumed while the run is in progress.
+ */
+public class GoJsonResultWriter implements GoBatchInspectionRunner.ResultConsumer {
+  @NotNull private final PrintWriter myWriter;
+
+  public GoJsonResultWriter(@NotNull PrintWriter writer) {
+    myWriter = writer;
+  }
+
+  @Override
+  public void consume(@NotNull VirtualFile file, @NotNull LocalInspectionTool tool, @NotNull List<ProblemDescriptor> problems) {
+    String severity = GoBatchInspectionRunner.getLevel(tool).getName();
+    StringBuilder sb = new StringBuilder();
+    for (ProblemDescriptor problem : problems) {
+      sb.append("{\"type\":\"problem\",\"inspection\":").append(quote(tool.getShortName()))
+        .append(",\"file\":").append(quote(file.getPath()))
+        .append(",\"line\":").append(problem.getLineNumber() + 1)
+        .append(",\"severity\":").append(quote(severity))
+        .append(",\"message\":").append(quote(ProblemDescriptorUtil.renderDescriptionMessage(problem, problem.getPsiElement())))
+        .append("}\n");
+    }
+    synchronized (myWriter) {
+      myWriter.print(sb);
+      myWriter.flush();
+    }
+  }
+
+  public void writeTimings(@NotNull Map<LocalInspectionTool, Long> timings) {
+    synchronized (myWriter) {
+      for (Map.Entry<LocalInspectionTool, Long> entry : timings.entrySet()) {
+        myWriter.println("{\"type\":\"timing\",\"inspection\":" + quote(entry.getKey().getShortName()) + ",\"ms\":" + entry.getValue() + "}");
+      }
+      myWriter.flush();
+    }
+  }
+
+  @NotNull
+  static String quote(@NotNull String s) {
+    return "\"" + StringUtil.escapeStringCharacters(s) + "\"";
+  }
+}
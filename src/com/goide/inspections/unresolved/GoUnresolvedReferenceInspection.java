@@ -20,7 +20,9 @@ import com.goide.GoConstants;
 import com.goide.GoTypes;
 import com.goide.codeInsight.imports.GoImportPackageQuickFix;
 import com.goide.inspections.GoInspectionBase;
+import com.goide.inspections.GoInspectionContext;
 import com.goide.psi.*;
+import com.goide.psi.impl.GoPackageSymbolTable;
 import com.goide.psi.impl.GoReference;
 import com.intellij.codeInspection.LocalInspectionToolSession;
 import com.intellij.codeInspection.LocalQuickFix;
@@ -43,7 +45,11 @@ public class GoUnresolvedReferenceInspection extends GoInspectionBase {
   @NotNull
   @Override
   protected GoVisitor buildGoVisitor(@NotNull final ProblemsHolder holder,
-                                     @SuppressWarnings({"UnusedParameters", "For future"}) @NotNull LocalInspectionToolSession session) {
+                                     @NotNull LocalInspectionToolSession session) {
+    // in batch mode nothing else shares the resolve results, so names known at package level are checked against a table
+    final GoPackageSymbolTable table = holder.isOnTheFly()
+                                       ? null
+                                       : GoInspectionContext.getInstance(session, (GoFile)session.getFile()).getSymbolTable();
     return new GoVisitor() {
       @Override
       public void visitFieldName(@NotNull GoFieldName o) {
@@ -58,6 +64,7 @@ public class GoUnresolvedReferenceInspection extends GoInspectionBase {
       @Override
       public void visitReferenceExpression(@NotNull GoReferenceExpression o) {
         super.visitReferenceExpression(o);
+        if (table != null && table.isResolved(o)) return;
         GoReference reference = o.getReference();
         GoReferenceExpression qualifier = o.getQualifier();
         GoReference qualifierRef = qualifier != null ? qualifier.getReference() : null;
@@ -112,6 +119,7 @@ public class GoUnresolvedReferenceInspection extends GoInspectionBase {
       @Override
       public void visitTypeReferenceExpression(@NotNull GoTypeReferenceExpression o) {
         super.visitTypeReferenceExpression(o);
+        if (table != null && table.isResolved(o)) return;
         PsiReference reference = o.getReference();
         GoTypeReferenceExpression qualifier = o.getQualifier();
         PsiReference qualifierRef = qualifier != null ? qualifier.getReference() : null;
@@ -43,14 +43,10 @@ public class GoUnusedFunctionInspection extends GoInspectionBase {
     return new GoVisitor() {
       @Override
       public void visitFunctionDeclaration(@NotNull GoFunctionDeclaration o) {
-        if (o.isBlank()) return;
-        GoFile file = o.getContainingFile();
-        String name = o.getName();
-        if (GoConstants.MAIN.equals(file.getPackageName()) && GoConstants.MAIN.equals(name)) return;
-        if (GoConstants.INIT.equals(name)) return;
-        if (GoTestFinder.isTestFile(file) && GoTestFunctionType.fromName(name) != null) return;
+        if (isImplicitlyUsed(o)) return;
         Query<PsiReference> search = ReferencesSearch.search(o, o.getUseScope());
         if (search.findFirst() == null) {
+          String name = o.getName();
           PsiElement id = o.getIdentifier();
           TextRange range = TextRange.from(id.getStartOffsetInParent(), id.getTextLength());
           holder.registerProblem(o, "Unused function " + "'" + name + "'", ProblemHighlightType.LIKE_UNUSED_SYMBOL, range,
@@ -59,4 +55,13 @@ public class GoUnusedFunctionInspection extends GoInspectionBase {
       }
     };
   }
+
+  static boolean isImplicitlyUsed(@NotNull GoFunctionDeclaration o) {
+    if (o.isBlank()) return true;
+    GoFile file = o.getContainingFile();
+    String name = o.getName();
+    if (GoConstants.MAIN.equals(file.getPackageName()) && GoConstants.MAIN.equals(name)) return true;
+    if (GoConstants.INIT.equals(name)) return true;
+    return GoTestFinder.isTestFile(file) && GoTestFunctionType.fromName(name) != null;
+  }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections.unresolved;
+
+import com.goide.GoFileType;
+import com.goide.inspections.GoDeleteQuickFix;
+import com.goide.inspections.GoRenameToBlankQuickFix;
+import com.goide.psi.*;
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.codeInspection.*;
+import com.intellij.codeInspection.reference.RefElement;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batch counterpart of {@link GoUnusedFunctionInspection} and {@link GoUnusedGlobalVariableInspection} that also reports
+ * unused top-level constants and types. Instead of running a references search per declaration it resolves every reference
+ * in the project exactly once, in parallel, and reports the declarations that no reference resolved to.
+ */
+public class GoUnusedSymbolsInspection extends GlobalInspectionTool {
+  @Override
+  public void runInspection(@NotNull AnalysisScope scope,
+                            @NotNull final InspectionManager manager,
+                            @NotNull final GlobalInspectionContext globalContext,
+                            @NotNull final ProblemDescriptionsProcessor processor) {
+    final Set<PsiElement> used = collectUsedDeclarations(manager.getProject());
+    final PsiManager psiManager = PsiManager.getInstance(manager.getProject());
+    scope.accept(new Processor<VirtualFile>() {
+      @Override
+      public boolean process(final VirtualFile file) {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (!(psiFile instanceof GoFile)) return;
+            List<ProblemDescriptor> problems = checkFile((GoFile)psiFile, used, manager);
+            if (problems.isEmpty()) return;
+            RefElement refFile = globalContext.getRefManager().getReference(psiFile);
+            if (refFile != null) {
+              processor.addProblemElement(refFile, problems.toArray(new ProblemDescriptor[problems.size()]));
+            }
+          }
+        });
+        return true;
+      }
+    });
+  }
+
+  /**
+   * The references are resolved by parallel workers taking a read action per file, which they could not do while the
+   * inspection holds one.
+   */
+  @Override
+  public boolean isReadActionNeeded() {
+    return false;
+  }
+
+  @Override
+  public boolean isGraphNeeded() {
+    return false;
+  }
+
+  /**
+   * Resolves every reference in the Go files of the project once and returns the set of declarations they point to.
+   */
+  @NotNull
+  static Set<PsiElement> collectUsedDeclarations(@NotNull final Project project) {
+    List<VirtualFile> files = ApplicationManager.getApplication().runReadAction(new Computable<List<VirtualFile>>() {
+      @Override
+      public List<VirtualFile> compute() {
+        return ContainerUtil.newArrayList(FileTypeIndex.getFiles(GoFileType.INSTANCE, GlobalSearchScope.projectScope(project)));
+      }
+    });
+    final Set<PsiElement> used = ContainerUtil.newConcurrentSet();
+    final PsiManager psiManager = PsiManager.getInstance(project);
+    if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+      // Workers taking their own read actions would wait for a pending write action, which waits for the caller's read
+      // action to finish, so a caller holding one gets the files resolved on its thread
+      for (VirtualFile file : files) {
+        collectUsages(psiManager, file, used);
+      }
+      return used;
+    }
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, ProgressManager.getInstance().getProgressIndicator(), true,
+                                                              new Processor<VirtualFile>() {
+      @Override
+      public boolean process(final VirtualFile file) {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            collectUsages(psiManager, file, used);
+          }
+        });
+        return true;
+      }
+    });
+    return used;
+  }
+
+  private static void collectUsages(@NotNull PsiManager psiManager, @NotNull VirtualFile file, @NotNull Set<PsiElement> used) {
+    PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+    if (psiFile instanceof GoFile) psiFile.accept(new UsageCollector(used));
+  }
+
+  @NotNull
+  private static List<ProblemDescriptor> checkFile(@NotNull GoFile file,
+                                                   @NotNull Set<PsiElement> used,
+                                                   @NotNull InspectionManager manager) {
+    List<ProblemDescriptor> problems = ContainerUtil.newArrayList();
+    for (GoFunctionDeclaration o : file.getFunctions()) {
+      if (GoUnusedFunctionInspection.isImplicitlyUsed(o) || used.contains(o)) continue;
+      String name = o.getName();
+      ContainerUtil.addIfNotNull(problems, createDescriptor(manager, o, "Unused function '" + name + "'",
+                                                            new GoDeleteQuickFix("Delete function '" + name + "'"),
+                                                            new GoRenameToBlankQuickFix(o)));
+    }
+    reportUnused(file.getVars(), "variable", used, manager, problems);
+    reportUnused(file.getConstants(), "constant", used, manager, problems);
+    reportUnused(file.getTypes(), "type", used, manager, problems);
+    return problems;
+  }
+
+  private static void reportUnused(@NotNull Collection<? extends GoNamedElement> elements,
+                                   @NotNull String kind,
+                                   @NotNull Set<PsiElement> used,
+                                   @NotNull InspectionManager manager,
+                                   @NotNull List<ProblemDescriptor> problems) {
+    for (GoNamedElement o : elements) {
+      ProgressIndicatorProvider.checkCanceled();
+      if (o.isBlank() || used.contains(o)) continue;
+      ContainerUtil.addIfNotNull(problems, createDescriptor(manager, o, "Unused " + kind + " '" + o.getName() + "'"));
+    }
+  }
+
+  @Nullable
+  private static ProblemDescriptor createDescriptor(@NotNull InspectionManager manager,
+                                                    @NotNull GoNamedElement o,
+                                                    @NotNull String description,
+                                                    @NotNull LocalQuickFix... fixes) {
+    PsiElement id = o.getIdentifier();
+    if (id == null) return null;
+    TextRange range = TextRange.from(id.getStartOffsetInParent(), id.getTextLength());
+    return manager.createProblemDescriptor(o, range, description, ProblemHighlightType.LIKE_UNUSED_SYMBOL, false, fixes);
+  }
+
+  private static class UsageCollector extends GoRecursiveVisitor {
+    @NotNull private final Set<PsiElement> myUsed;
+
+    public UsageCollector(@NotNull Set<PsiElement> used) {
+      myUsed = used;
+    }
+
+    @Override
+    public void visitCompositeElement(@NotNull GoCompositeElement o) {
+      if (o instanceof GoReferenceExpressionBase) {
+        ProgressIndicatorProvider.checkCanceled();
+        PsiReference reference = o.getReference();
+        PsiElement resolve = reference != null ? reference.resolve() : null;
+        if (resolve != null && resolve != o && !(resolve instanceof GoVarDefinition && GoUnusedVariableInspection.isAssignmentOnly(o))) {
+          myUsed.add(resolve);
+        }
+      }
+      super.visitCompositeElement(o);
+    }
+  }
+}
@@ -19,15 +19,23 @@ package com.goide.inspections.unresolved;
 import com.goide.inspections.GoInspectionBase;
 import com.goide.inspections.GoRenameToBlankQuickFix;
 import com.goide.psi.*;
+import com.goide.psi.impl.GoPsiImplUtil;
 import com.intellij.codeInspection.LocalInspectionToolSession;
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Query;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
 
 public class GoUnusedVariableInspection extends GoInspectionBase {
   @NotNull
@@ -41,33 +49,16 @@ public class GoUnusedVariableInspection extends GoInspectionBase {
         GoCompositeElement varSpec = PsiTreeUtil.getParentOfType(o, GoVarSpec.class, GoTypeSwitchGuard.class);
         GoVarDeclaration decl = PsiTreeUtil.getParentOfType(o, GoVarDeclaration.class);
         if (varSpec != null || decl != null) {
+          boolean globalVar = decl != null && decl.getParent() instanceof GoFile;
+          if (globalVar != checkGlobal()) return;
           PsiReference reference = o.getReference();
           PsiElement resolve = reference != null ? reference.resolve() : null;
           if (resolve != null) return;
-          Query<PsiReference> query = ReferencesSearch.search(o, o.getUseScope());
-          for (PsiReference ref : query) {
-            PsiElement element = ref.getElement();
-            if (element == null) continue;
-            PsiElement parent = element.getParent();
-            if (parent instanceof GoLeftHandExprList) {
-              PsiElement grandParent = parent.getParent();
-              if (grandParent instanceof GoAssignmentStatement && ((GoAssignmentStatement)grandParent).getAssignOp().getAssign() != null) {
-                continue;
-              }
-            }
-            if (parent instanceof GoShortVarDeclaration) {
-              int op = ((GoShortVarDeclaration)parent).getVarAssign().getStartOffsetInParent();
-              if (element.getStartOffsetInParent() < op) continue;
-            }
-            return;
-          }
-          boolean globalVar = decl != null && decl.getParent() instanceof GoFile;
+          if (globalVar ? isUsed(o) : isLocalUsed(o)) return;
           if (globalVar) {
-            if (!checkGlobal()) return;
             holder.registerProblem(o, "Unused variable " + "'" + o.getName() + "'", ProblemHighlightType.LIKE_UNUSED_SYMBOL);
           }
           else {
-            if (checkGlobal()) return;
             holder.registerProblem(o, "Unused variable " + "'" + o.getName() + "'", ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
                                    new GoRenameToBlankQuickFix(o));
           }
@@ -76,6 +67,67 @@ public class GoUnusedVariableInspection extends GoInspectionBase {
     };
   }
 
+  private static boolean isUsed(@NotNull GoVarDefinition o) {
+    Query<PsiReference> query = ReferencesSearch.search(o, o.getUseScope());
+    for (PsiReference ref : query) {
+      PsiElement element = ref.getElement();
+      if (element == null || isAssignmentOnly(element)) continue;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * A local variable can only be referenced from the function (or package-level declaration) it belongs to,
+   * so instead of a references search per variable we look it up in a def-use set built by a single traversal of that owner.
+   */
+  private static boolean isLocalUsed(@NotNull GoVarDefinition o) {
+    GoCompositeElement owner = PsiTreeUtil.getParentOfType(o, GoFunctionOrMethodDeclaration.class);
+    if (owner == null) owner = GoPsiImplUtil.getTopLevelDeclaration(o);
+    return owner != null ? getUsedVariables(owner).contains(o) : isUsed(o);
+  }
+
+  @NotNull
+  private static Set<GoVarDefinition> getUsedVariables(@NotNull final GoCompositeElement owner) {
+    return CachedValuesManager.getCachedValue(owner, new CachedValueProvider<Set<GoVarDefinition>>() {
+      @Nullable
+      @Override
+      public Result<Set<GoVarDefinition>> compute() {
+        final Set<GoVarDefinition> used = ContainerUtil.newHashSet();
+        owner.accept(new GoRecursiveVisitor() {
+          @Override
+          public void visitCompositeElement(@NotNull GoCompositeElement o) {
+            if (o instanceof GoReferenceExpressionBase && !isAssignmentOnly(o)) {
+              PsiReference reference = o.getReference();
+              PsiElement resolve = reference != null ? reference.resolve() : null;
+              if (resolve instanceof GoVarDefinition) used.add((GoVarDefinition)resolve);
+            }
+            super.visitCompositeElement(o);
+          }
+        });
+        return Result.create(used, PsiModificationTracker.MODIFICATION_COUNT);
+      }
+    });
+  }
+
+  /**
+   * Plain assignments and redeclarations on the left side of := write to a variable without using it.
+   */
+  static boolean isAssignmentOnly(@NotNull PsiElement element) {
+    PsiElement parent = element.getParent();
+    if (parent instanceof GoLeftHandExprList) {
+      PsiElement grandParent = parent.getParent();
+      if (grandParent instanceof GoAssignmentStatement && ((GoAssignmentStatement)grandParent).getAssignOp().getAssign() != null) {
+        return true;
+      }
+    }
+    if (parent instanceof GoShortVarDeclaration) {
+      int op = ((GoShortVarDeclaration)parent).getVarAssign().getStartOffsetInParent();
+      if (element.getStartOffsetInParent() < op) return true;
+    }
+    return false;
+  }
+
   protected boolean checkGlobal() {
     return false;
   }
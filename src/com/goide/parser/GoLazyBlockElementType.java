@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.parser;
+
+import com.goide.GoLanguage;
+import com.goide.GoTypes;
+import com.goide.lexer.GoLexer;
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.Language;
+import com.intellij.lang.PsiBuilder;
+import com.intellij.lang.PsiBuilderFactory;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.IReparseableElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Body of a function or method declaration. The parser only skips the balanced braces of the body, the statements
+ * are parsed when the block is accessed for the first time, so files that are only resolved against never build body AST.
+ * An edit inside the body that keeps the braces balanced reparses just this block.
+ * <p/>
+ * The PSI is {@link com.goide.psi.GoBlock} and the debug name is the same as {@link GoTypes#BLOCK}.
+ * Code that checks element types of blocks should use {@link #isBlock(IElementType)}.
+ */
+public class GoLazyBlockElementType extends IReparseableElementType {
+  public static final GoLazyBlockElementType INSTANCE = new GoLazyBlockElementType();
+
+  private GoLazyBlockElementType() {
+    super("BLOCK", GoLanguage.INSTANCE);
+  }
+
+  public static boolean isBlock(@Nullable IElementType type) {
+    return type == GoTypes.BLOCK || type == INSTANCE;
+  }
+
+  @Override
+  protected ASTNode doParseContents(@NotNull ASTNode chameleon, @NotNull PsiElement psi) {
+    PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(psi.getProject(), chameleon, new GoLexer(),
+                                                                       GoLanguage.INSTANCE, chameleon.getChars());
+    return GoParserUtil.parseLazyBlock(builder, this).getFirstChildNode();
+  }
+
+  @Override
+  public boolean isParsable(CharSequence buffer, Language fileLanguage, Project project) {
+    return GoParserUtil.isBalancedBlock(buffer);
+  }
+}
@@ -17,20 +17,22 @@
 package com.goide.parser;
 
 import com.goide.GoTypes;
+import com.goide.lexer.GoLexer;
+import com.intellij.lang.ASTNode;
 import com.intellij.lang.LighterASTNode;
 import com.intellij.lang.PsiBuilder;
 import com.intellij.lang.WhitespacesBinders;
 import com.intellij.lang.impl.PsiBuilderAdapter;
 import com.intellij.lang.parser.GeneratedParserUtilBase;
+import com.intellij.lexer.Lexer;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.impl.source.resolve.FileContextUtil;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.indexing.IndexingDataKeys;
-import gnu.trove.TObjectIntHashMap;
-import gnu.trove.TObjectIntProcedure;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -38,13 +40,13 @@ import java.lang.reflect.Field;
 import java.util.List;
 
 public class GoParserUtil extends GeneratedParserUtilBase {
-  private static final Key<TObjectIntHashMap<String>> MODES_KEY = Key.create("MODES_KEY");
+  private static final Key<ParsingModes> MODES_KEY = Key.create("MODES_KEY");
 
   @NotNull
-  private static TObjectIntHashMap<String> getParsingModes(@NotNull PsiBuilder builder_) {
-    TObjectIntHashMap<String> flags = builder_.getUserDataUnprotected(MODES_KEY);
-    if (flags == null) builder_.putUserDataUnprotected(MODES_KEY, flags = new TObjectIntHashMap<String>());
-    return flags;
+  private static ParsingModes getParsingModes(@NotNull PsiBuilder builder_) {
+    ParsingModes modes = builder_.getUserDataUnprotected(MODES_KEY);
+    if (modes == null) builder_.putUserDataUnprotected(MODES_KEY, modes = new ParsingModes());
+    return modes;
   }
 
   public static boolean consumeBlock(PsiBuilder builder_, @SuppressWarnings("UnusedParameters") int level) {
@@ -52,22 +54,72 @@ public class GoParserUtil extends GeneratedParserUtilBase {
     if (file == null) return false;
     VirtualFile data = file.getUserData(IndexingDataKeys.VIRTUAL_FILE);
     if (data == null) return false;
-    int i = 0;
     PsiBuilder.Marker m = builder_.mark();
+    boolean result = skipBalancedBraces(builder_);
+    if (result) {
+      m.drop();
+    }
+    else {
+      m.rollbackTo();
+    }
+    return result;  
+  }
+
+  /**
+   * Collapses a function or method body into a {@link GoLazyBlockElementType lazy block} that is parsed on first access.
+   * Falls back to the regular block if the braces are not balanced.
+   */
+  public static boolean lazyBlock(PsiBuilder builder_, @SuppressWarnings("UnusedParameters") int level) {
+    if (builder_.getTokenType() != GoTypes.LBRACE) return false;
+    PsiBuilder.Marker m = builder_.mark();
+    if (skipBalancedBraces(builder_)) {
+      m.collapse(GoLazyBlockElementType.INSTANCE);
+      return true;
+    }
+    m.rollbackTo();
+    return false;
+  }
+
+  private static boolean skipBalancedBraces(@NotNull PsiBuilder builder_) {
+    int i = 0;
     do {
       IElementType type = builder_.getTokenType();
       i += type == GoTypes.LBRACE ? 1 : type == GoTypes.RBRACE ? -1 : 0;  
       builder_.advanceLexer();
     }
     while (i > 0 && !builder_.eof());
-    boolean result = i == 0;
-    if (result) {
-      m.drop();
+    return i == 0;
+  }
+
+  /**
+   * Parses the text of a lazy block: braces and statements, without the enclosing block node.
+   */
+  @NotNull
+  static ASTNode parseLazyBlock(@NotNull PsiBuilder builder, @NotNull IElementType root) {
+    PsiBuilder b = adapt_builder_(root, builder, new GoParser(), GoParser.EXTENDS_SETS_);
+    PsiBuilder.Marker m = enter_section_(b, 0, _COLLAPSE_, null);
+    boolean r = consumeToken(b, GoTypes.LBRACE);
+    if (r && !consumeToken(b, GoTypes.RBRACE)) {
+      GoParser.Statements(b, 1);
+      r = consumeToken(b, GoTypes.RBRACE);
     }
-    else {
-      m.rollbackTo();
+    exit_section_(b, 0, m, root, r, true, TRUE_CONDITION);
+    return b.getTreeBuilt();
+  }
+
+  /**
+   * Checks that the text is a single block with balanced braces, i.e. that it can be reparsed as a lazy block.
+   */
+  static boolean isBalancedBlock(@NotNull CharSequence text) {
+    Lexer lexer = new GoLexer();
+    lexer.start(text);
+    if (lexer.getTokenType() != GoTypes.LBRACE) return false;
+    int i = 0;
+    for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+      if (i == 0 && lexer.getTokenStart() > 0) return false;
+      i += type == GoTypes.LBRACE ? 1 : type == GoTypes.RBRACE ? -1 : 0;
     }
-    return result;  
+    return i == 0;
   }
   
   public static boolean emptyImportList(PsiBuilder builder_, @SuppressWarnings("UnusedParameters") int level) {
@@ -87,38 +139,24 @@ public class GoParserUtil extends GeneratedParserUtilBase {
   }
 
   public static boolean withOff(PsiBuilder builder_, int level_, Parser parser, String... modes) {
-    final TObjectIntHashMap<String> map = getParsingModes(builder_);
-
-    TObjectIntHashMap<String> prev = new TObjectIntHashMap<String>();
-    
-    for (String mode : modes) {
-      int p = map.get(mode);
-      if (p > 0) {
-        map.put(mode, 0);
-        prev.put(mode, p);
-      }
+    ParsingModes map = getParsingModes(builder_);
+    int saved = map.save(modes);
+    try {
+      return parser.parse(builder_, level_);
+    }
+    finally {
+      map.restore(modes, saved);
     }
-    
-    boolean result = parser.parse(builder_, level_);
-    
-    prev.forEachEntry(new TObjectIntProcedure<String>() {
-      @Override
-      public boolean execute(String mode, int p) {
-        map.put(mode, p);
-        return true;
-      }
-    });
-    
-    return result;
   }
 
   private static boolean withImpl(PsiBuilder builder_, int level_, String mode, boolean onOff, Parser whenOn, Parser whenOff) {
-    TObjectIntHashMap<String> map = getParsingModes(builder_);
-    int prev = map.get(mode);
+    ParsingModes map = getParsingModes(builder_);
+    int index = ParsingModes.indexOf(mode);
+    int prev = map.myValues[index];
     boolean change = ((prev & 1) == 0) == onOff;
-    if (change) map.put(mode, prev << 1 | (onOff ? 1 : 0));
+    if (change) map.myValues[index] = prev << 1 | (onOff ? 1 : 0);
     boolean result = (change ? whenOn : whenOff).parse(builder_, level_);
-    if (change) map.put(mode, prev);
+    if (change) map.myValues[index] = prev;
     return result;
   }
 
@@ -142,16 +180,14 @@ public class GoParserUtil extends GeneratedParserUtilBase {
   }
 
   public static boolean enterMode(@NotNull PsiBuilder builder_, @SuppressWarnings("UnusedParameters") int level, String mode) {
-    TObjectIntHashMap<String> flags = getParsingModes(builder_);
-    if (!flags.increment(mode)) flags.put(mode, 1);
+    getParsingModes(builder_).myValues[ParsingModes.indexOf(mode)]++;
     return true;
   }
 
   public static boolean exitMode(@NotNull PsiBuilder builder_, @SuppressWarnings("UnusedParameters") int level, String mode, boolean safe) {
-    TObjectIntHashMap<String> flags = getParsingModes(builder_);
-    int count = flags.get(mode);
-    if (count == 1) flags.remove(mode);
-    else if (count > 1) flags.put(mode, count - 1);
+    int[] values = getParsingModes(builder_).myValues;
+    int index = ParsingModes.indexOf(mode);
+    if (values[index] > 0) values[index]--;
     else if (!safe) builder_.error("Could not exit inactive '" + mode + "' mode at offset " + builder_.getCurrentOffset());
     return true;
   }
@@ -185,4 +221,48 @@ public class GoParserUtil extends GeneratedParserUtilBase {
     catch (Exception ignored) {}
     return null;
   }
+
+  /**
+   * Values of the parsing modes used by the grammar, indexed by {@link #MODES} and allocated once per builder.
+   * Values replaced by {@code withOff} are kept in a stack that only grows, so switching modes does not allocate.
+   */
+  private static class ParsingModes {
+    private static final String[] MODES = {"BLOCK?", "PAR"};
+
+    private final int[] myValues = new int[MODES.length];
+    private int[] mySaved = new int[16];
+    private int mySavedSize;
+
+    private static int indexOf(@NotNull String mode) {
+      for (int i = 0; i < MODES.length; i++) {
+        if (MODES[i].equals(mode)) return i;
+      }
+      throw new IllegalArgumentException("Unknown parsing mode: " + mode);
+    }
+
+    private int get(@NotNull String mode) {
+      return myValues[indexOf(mode)];
+    }
+
+    /**
+     * Turns the modes off and returns the stack position to {@link #restore(String[], int)} their previous values from.
+     */
+    private int save(@NotNull String[] modes) {
+      int start = mySavedSize;
+      if (mySaved.length < start + modes.length) mySaved = ArrayUtil.realloc(mySaved, Math.max(mySaved.length * 2, start + modes.length));
+      for (String mode : modes) {
+        int index = indexOf(mode);
+        mySaved[mySavedSize++] = myValues[index];
+        myValues[index] = 0;
+      }
+      return start;
+    }
+
+    private void restore(@NotNull String[] modes, int start) {
+      for (int i = 0; i < modes.length; i++) {
+        myValues[indexOf(modes[i])] = mySaved[start + i];
+      }
+      mySavedSize = start;
+    }
+  }
 }
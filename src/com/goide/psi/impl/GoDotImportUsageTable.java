@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.psi.impl;
+
+import com.goide.psi.GoFile;
+import com.goide.psi.GoImportSpec;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of references resolved through each dot-import of a file. Usages are recorded by {@link GoReference} while resolving.
+ * The table is bound to the modification stamp of the file: any change of the file drops it together with the recorded
+ * usages, which is when the resolve cache is dropped as well, so references get resolved and recorded again.
+ */
+public class GoDotImportUsageTable {
+  private static final Key<GoDotImportUsageTable> KEY = Key.create("GO_DOT_IMPORT_USAGES");
+
+  private final long myModificationStamp;
+  private final ConcurrentMap<GoImportSpec, AtomicInteger> myUsages = ContainerUtil.newConcurrentMap();
+
+  private GoDotImportUsageTable(long modificationStamp) {
+    myModificationStamp = modificationStamp;
+  }
+
+  static void recordUsage(@NotNull GoFile file, @NotNull GoImportSpec spec) {
+    ConcurrentMap<GoImportSpec, AtomicInteger> usages = getInstance(file).myUsages;
+    AtomicInteger count = usages.get(spec);
+    if (count == null) {
+      AtomicInteger existing = usages.putIfAbsent(spec, count = new AtomicInteger());
+      if (existing != null) count = existing;
+    }
+    count.incrementAndGet();
+  }
+
+  public static int getUsageCount(@NotNull GoImportSpec spec) {
+    AtomicInteger count = getInstance(spec.getContainingFile()).myUsages.get(spec);
+    return count != null ? count.get() : 0;
+  }
+
+  public static boolean isUsed(@NotNull GoImportSpec spec) {
+    return getUsageCount(spec) > 0;
+  }
+
+  @NotNull
+  private static GoDotImportUsageTable getInstance(@NotNull GoFile file) {
+    long stamp = file.getModificationStamp();
+    while (true) {
+      GoDotImportUsageTable table = file.getUserData(KEY);
+      if (table != null && table.myModificationStamp == stamp) return table;
+      GoDotImportUsageTable newTable = new GoDotImportUsageTable(stamp);
+      if (((UserDataHolderEx)file).replace(KEY, table, newTable)) return newTable;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.psi.impl;
+
+import com.goide.psi.GoFile;
+import com.goide.psi.GoFunctionDeclaration;
+import com.goide.psi.GoMethodDeclaration;
+import com.goide.stubs.types.GoMethodDeclarationStubElementType;
+import com.goide.util.GoUtil;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.containers.MultiMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Top-level functions and methods of a package (the files of a directory sharing a package clause and matching
+ * the build constraints), grouped by name. One table is shared by all files of the package and rebuilt only
+ * after a change outside of code blocks, so checking a file for duplicates costs the number of its own declarations.
+ */
+public class GoPackageDeclarationTable {
+  private final MultiMap<String, GoFunctionDeclaration> myFunctions = MultiMap.create();
+  private final MultiMap<String, GoMethodDeclaration> myMethods = MultiMap.create();
+
+  private GoPackageDeclarationTable(@NotNull Collection<GoFile> files) {
+    for (GoFile file : files) {
+      for (GoFunctionDeclaration function : file.getFunctions()) {
+        myFunctions.putValue(function.getName(), function);
+      }
+      for (GoMethodDeclaration method : file.getMethods()) {
+        String typeText = GoMethodDeclarationStubElementType.calcTypeText(method);
+        if (typeText != null) myMethods.putValue(methodKey(typeText, method.getName()), method);
+      }
+    }
+  }
+
+  @NotNull
+  public Collection<GoFunctionDeclaration> getFunctions(@Nullable String name) {
+    return myFunctions.get(name);
+  }
+
+  @NotNull
+  public Collection<GoMethodDeclaration> getMethods(@NotNull String receiverTypeText, @Nullable String name) {
+    return myMethods.get(methodKey(receiverTypeText, name));
+  }
+
+  @NotNull
+  private static String methodKey(@NotNull String receiverTypeText, @Nullable String name) {
+    return receiverTypeText + "." + name;
+  }
+
+  @NotNull
+  public static GoPackageDeclarationTable getInstance(@NotNull GoFile file) {
+    String packageName = file.getPackageName();
+    final PsiDirectory dir = file.getOriginalFile().getParent();
+    if (dir == null || packageName == null) return new GoPackageDeclarationTable(ContainerUtil.newSmartList(file));
+    ConcurrentMap<String, GoPackageDeclarationTable> tables =
+      CachedValuesManager.getCachedValue(dir, new CachedValueProvider<ConcurrentMap<String, GoPackageDeclarationTable>>() {
+        @Nullable
+        @Override
+        public Result<ConcurrentMap<String, GoPackageDeclarationTable>> compute() {
+          ConcurrentMap<String, GoPackageDeclarationTable> map = ContainerUtil.newConcurrentMap();
+          return Result.create(map, dir, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+        }
+      });
+    GoPackageDeclarationTable table = tables.get(packageName);
+    return table != null ? table : ConcurrencyUtil.cacheOrGet(tables, packageName, build(dir, packageName));
+  }
+
+  @NotNull
+  private static GoPackageDeclarationTable build(@NotNull PsiDirectory dir, @NotNull String packageName) {
+    Collection<GoFile> files = ContainerUtil.newArrayList();
+    for (PsiFile f : dir.getFiles()) {
+      if (f instanceof GoFile && packageName.equals(((GoFile)f).getPackageName()) && GoUtil.allowed(f)) {
+        files.add((GoFile)f);
+      }
+    }
+    return new GoPackageDeclarationTable(files);
+  }
+}
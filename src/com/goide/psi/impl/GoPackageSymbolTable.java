@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.psi.impl;
+
+import com.goide.psi.*;
+import com.goide.runconfig.testing.GoTestFinder;
+import com.goide.sdk.GoSdkUtil;
+import com.goide.util.GoUtil;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Comparing;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names visible at the package level of a file: its own top-level declarations, the declarations of the other files
+ * of the package, the import names and the builtin declarations. The table is computed once per file and lets batch
+ * checks answer "does this unqualified reference resolve to exactly one declaration" without walking imports and
+ * directories again. Names declared more than once are left out, so ambiguous references still go through the regular
+ * resolve and get reported.
+ * <p/>
+ * Names contributed by dot-imports are intentionally left out: resolving through them records the import usage
+ * ({@link GoDotImportUsageTable}), so such references must still go through the regular resolve.
+ */
+public class GoPackageSymbolTable {
+  private final Set<String> myNames;
+  private final Set<String> myTypeNames;
+
+  private GoPackageSymbolTable(@NotNull Set<String> names, @NotNull Set<String> typeNames) {
+    myNames = names;
+    myTypeNames = typeNames;
+  }
+
+  @NotNull
+  public static GoPackageSymbolTable getInstance(@NotNull final GoFile file) {
+    return CachedValuesManager.getCachedValue(file, new CachedValueProvider<GoPackageSymbolTable>() {
+      @Nullable
+      @Override
+      public Result<GoPackageSymbolTable> compute() {
+        return Result.create(build(file), PsiModificationTracker.MODIFICATION_COUNT, ProjectRootManager.getInstance(file.getProject()));
+      }
+    });
+  }
+
+  /**
+   * Returns true if the reference is known to resolve to a single declaration. False means "unknown", callers must fall
+   * back to the regular resolve.
+   */
+  public boolean isResolved(@NotNull GoReferenceExpression o) {
+    if (o.getQualifier() != null || PsiTreeUtil.getPrevSiblingOfType(o, GoReceiverType.class) != null) return false;
+    PsiElement parent = o.getParent();
+    if (parent instanceof GoSelectorExpr || parent.getParent() instanceof GoSelectorExpr) return false;
+    if (GoPsiImplUtil.prevDot(o) || GoPsiImplUtil.prevDot(parent)) return false;
+    return myNames.contains(o.getIdentifier().getText());
+  }
+
+  /**
+   * @see #isResolved(GoReferenceExpression)
+   */
+  public boolean isResolved(@NotNull GoTypeReferenceExpression o) {
+    if (o.getQualifier() != null || o.getParent() instanceof GoMethodSpec) return false;
+    return myTypeNames.contains(o.getIdentifier().getText());
+  }
+
+  @NotNull
+  private static GoPackageSymbolTable build(@NotNull GoFile file) {
+    Set<String> names = ContainerUtil.newTroveSet();
+    Set<String> typeNames = ContainerUtil.newTroveSet();
+    Set<String> duplicates = ContainerUtil.newTroveSet();
+    addFileEntities(file, names, typeNames, duplicates);
+
+    PsiDirectory dir = file.getOriginalFile().getParent();
+    String packageName = file.getPackageName();
+    if (dir != null && packageName != null) {
+      boolean isTesting = GoTestFinder.isTestFile(file);
+      for (PsiFile f : dir.getFiles()) {
+        if (!(f instanceof GoFile) || Comparing.equal(f.getOriginalFile(), file.getOriginalFile())) continue;
+        if (!packageName.equals(((GoFile)f).getPackageName())) continue;
+        if ((!GoTestFinder.isTestFile(f) || isTesting) && GoUtil.allowed(f)) {
+          addFileEntities((GoFile)f, names, typeNames, duplicates);
+        }
+      }
+    }
+
+    // import names qualify other references, they are never types themselves
+    for (Map.Entry<String, Collection<GoImportSpec>> entry : file.getImportMap().entrySet()) {
+      for (GoImportSpec spec : entry.getValue()) {
+        if (spec.isForSideEffects() || spec.isDot()) continue;
+        addName(entry.getKey(), names, duplicates);
+      }
+    }
+
+    GoFile builtin = GoSdkUtil.findBuiltinFile(file);
+    if (builtin != null) addFileEntities(builtin, names, typeNames, duplicates);
+    names.removeAll(duplicates);
+    typeNames.removeAll(duplicates);
+    return new GoPackageSymbolTable(names, typeNames);
+  }
+
+  private static void addFileEntities(@NotNull GoFile file,
+                                      @NotNull Set<String> names,
+                                      @NotNull Set<String> typeNames,
+                                      @NotNull Set<String> duplicates) {
+    addNames(file.getConstants(), names, duplicates);
+    addNames(file.getVars(), names, duplicates);
+    addNames(file.getFunctions(), names, duplicates);
+    addNames(file.getTypes(), names, duplicates);
+    for (GoTypeSpec type : file.getTypes()) {
+      ContainerUtil.addIfNotNull(typeNames, type.getName());
+    }
+  }
+
+  private static void addNames(@NotNull Collection<? extends GoNamedElement> elements,
+                               @NotNull Set<String> names,
+                               @NotNull Set<String> duplicates) {
+    for (GoNamedElement element : elements) {
+      String name = element.getName();
+      if (name != null) addName(name, names, duplicates);
+    }
+  }
+
+  private static void addName(@NotNull String name, @NotNull Set<String> names, @NotNull Set<String> duplicates) {
+    if (!names.add(name)) duplicates.add(name);
+  }
+}
@@ -44,7 +44,6 @@ import java.util.Map;
 import static com.goide.psi.impl.GoPsiImplUtil.*;
 
 public class GoReference extends PsiPolyVariantReferenceBase<GoReferenceExpressionBase> {
-  public static final Key<List<? extends PsiElement>> IMPORT_USERS = Key.create("IMPORT_USERS");
   public static final Key<String> ACTUAL_NAME = Key.create("ACTUAL_NAME");
   public static final Key<Object> POINTER = Key.create("POINTER");
   public static final Key<Object> RECEIVER = Key.create("RECEIVER");
@@ -307,7 +306,7 @@ public class GoReference extends PsiPolyVariantReferenceBase<GoReferenceExpressi
     if (!processNamedElements(processor, state, delegate.getVariants(), localResolve)) return false;
     if (!processFileEntities(file, processor, state, localResolve)) return false;
     if (!processDirectory(file.getOriginalFile().getParent(), file, file.getPackageName(), processor, state, true)) return false;
-    if (processImports(file, processor, state, myElement)) return false;
+    if (processImports(file, processor, state)) return false;
     if (processBuiltin(processor, state, myElement)) return false;
     return true;
   }
@@ -318,10 +317,7 @@ public class GoReference extends PsiPolyVariantReferenceBase<GoReferenceExpressi
     return false;
   }
 
-  static boolean processImports(@NotNull GoFile file,
-                                @NotNull GoScopeProcessor processor,
-                                @NotNull ResolveState state,
-                                @NotNull GoCompositeElement element) {
+  static boolean processImports(@NotNull GoFile file, @NotNull GoScopeProcessor processor, @NotNull ResolveState state) {
     for (Map.Entry<String, Collection<GoImportSpec>> entry : file.getImportMap().entrySet()) {
       for (GoImportSpec o : entry.getValue()) {
         if (o.isForSideEffects()) continue;
@@ -331,7 +327,7 @@ public class GoReference extends PsiPolyVariantReferenceBase<GoReferenceExpressi
           PsiDirectory implicitDir = importString.resolve();
           boolean resolved = !processDirectory(implicitDir, file, null, processor, state, false);
           if (resolved && !processor.isCompletion()) {
-            putIfAbsent(o, element);
+            GoDotImportUsageTable.recordUsage(file, o);
           }
           if (resolved) return true;
         }
@@ -447,13 +443,4 @@ public class GoReference extends PsiPolyVariantReferenceBase<GoReferenceExpressi
     getIdentifier().replace(GoElementFactory.createIdentifierFromText(myElement.getProject(), newElementName));
     return myElement;
   }
-
-  static void putIfAbsent(@NotNull PsiElement importElement, @NotNull PsiElement usage) {
-    List<PsiElement> newList = ContainerUtil.newSmartList(usage);
-    List<? extends PsiElement> list = importElement.getUserData(IMPORT_USERS);
-    if (list != null) {
-      newList.addAll(list);
-    }
-    importElement.putUserData(IMPORT_USERS, newList);
-  }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.psi.impl;
+
+import com.goide.psi.*;
+import com.intellij.openapi.util.Comparing;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flattened method and field set of a named type, including members promoted from embedded types.
+ * The set is cached on the type spec and invalidated whenever any package contributing to it changes,
+ * so the members of intermediate types in selector chains are computed once instead of on every resolve.
+ */
+public class GoTypeMemberCache {
+  private GoTypeMemberCache() {
+  }
+
+  @NotNull
+  public static List<GoNamedElement> getMembers(@NotNull final GoTypeSpec spec) {
+    return CachedValuesManager.getCachedValue(spec, new CachedValueProvider<List<GoNamedElement>>() {
+      @Nullable
+      @Override
+      public Result<List<GoNamedElement>> compute() {
+        Set<PsiDirectory> dependencies = ContainerUtil.newLinkedHashSet();
+        List<GoNamedElement> members = calcMembers(spec, dependencies);
+        Object[] deps = dependencies.isEmpty()
+                        ? new Object[]{PsiModificationTracker.MODIFICATION_COUNT}
+                        : ArrayUtil.toObjectArray(dependencies);
+        return Result.create(members, deps);
+      }
+    });
+  }
+
+  /**
+   * Returns the named type whose members are available on a value of the given element, dereferencing one pointer level,
+   * e.g. {@code T} for a field of type {@code *T} or a method returning {@code T}.
+   */
+  @Nullable
+  public static GoTypeSpec getMemberOwnerSpec(@NotNull GoNamedElement element) {
+    if (element instanceof GoTypeSpec || element instanceof GoNamedSignatureOwner && ((GoNamedSignatureOwner)element).getSignature() == null) {
+      return null;
+    }
+    return getMemberOwnerSpec(element.getGoType(null));
+  }
+
+  @Nullable
+  public static GoTypeSpec getMemberOwnerSpec(@Nullable GoType type) {
+    if (type instanceof GoPointerType) type = ((GoPointerType)type).getType();
+    if (type == null || type instanceof GoTypeList) return null;
+    return resolve(GoPsiImplUtil.getTypeReference(type));
+  }
+
+  public static boolean isAccessible(@NotNull GoNamedElement member, @Nullable PsiFile contextFile) {
+    if (member.isPublic()) return true;
+    if (!(contextFile instanceof GoFile)) return false;
+    GoFile file = member.getContainingFile();
+    return Comparing.equal(file.getOriginalFile().getParent(), contextFile.getOriginalFile().getParent()) &&
+           Comparing.equal(file.getPackageName(), ((GoFile)contextFile).getPackageName());
+  }
+
+  @NotNull
+  private static List<GoNamedElement> calcMembers(@NotNull GoTypeSpec spec, @NotNull Set<PsiDirectory> dependencies) {
+    List<GoNamedElement> result = ContainerUtil.newArrayList();
+    Set<String> names = ContainerUtil.newHashSet();
+    Set<GoTypeSpec> visited = ContainerUtil.newHashSet();
+    // breadth-first by embedding depth: a member declared closer to the type shadows promoted ones with the same name
+    List<GoTypeSpec> level = ContainerUtil.newSmartList(spec);
+    boolean root = true;
+    while (!level.isEmpty()) {
+      List<GoTypeSpec> next = ContainerUtil.newArrayList();
+      List<GoNamedElement> levelMembers = ContainerUtil.newArrayList();
+      for (GoTypeSpec s : level) {
+        if (!visited.add(s)) continue;
+        ContainerUtil.addIfNotNull(dependencies, s.getContainingFile().getOriginalFile().getParent());
+        collectLevel(s, root, levelMembers, next);
+      }
+      Set<String> levelNames = ContainerUtil.newHashSet();
+      for (GoNamedElement member : levelMembers) {
+        String name = member.getName();
+        if (name == null || names.contains(name)) continue;
+        levelNames.add(name);
+        result.add(member);
+      }
+      names.addAll(levelNames);
+      level = next;
+      root = false;
+    }
+    return result;
+  }
+
+  private static void collectLevel(@NotNull GoTypeSpec spec,
+                                   boolean root,
+                                   @NotNull Collection<GoNamedElement> members,
+                                   @NotNull Collection<GoTypeSpec> embedded) {
+    members.addAll(spec.getMethods());
+    GoType type = spec.getSpecType().getType();
+    if (root && !(type instanceof GoStructType) && !(type instanceof GoInterfaceType)) {
+      // type T U: T gets the fields of U (and the methods if U is an interface) but not the method set of U
+      GoTypeSpec underlying = resolve(type.getTypeReferenceExpression());
+      type = underlying != null ? underlying.getSpecType().getType() : null;
+    }
+    if (type instanceof GoStructType) {
+      for (GoFieldDeclaration declaration : ((GoStructType)type).getFieldDeclarationList()) {
+        members.addAll(declaration.getFieldDefinitionList());
+        GoAnonymousFieldDefinition anon = declaration.getAnonymousFieldDefinition();
+        if (anon != null) {
+          members.add(anon);
+          ContainerUtil.addIfNotNull(embedded, resolve(anon.getTypeReferenceExpression()));
+        }
+      }
+    }
+    else if (type instanceof GoInterfaceType) {
+      members.addAll(((GoInterfaceType)type).getMethods());
+      for (GoTypeReferenceExpression ref : ((GoInterfaceType)type).getBaseTypesReferences()) {
+        ContainerUtil.addIfNotNull(embedded, resolve(ref));
+      }
+    }
+  }
+
+  @Nullable
+  private static GoTypeSpec resolve(@Nullable GoTypeReferenceExpression ref) {
+    PsiReference reference = ref != null ? ref.getReference() : null;
+    PsiElement resolve = reference != null ? reference.resolve() : null;
+    return resolve instanceof GoTypeSpec ? (GoTypeSpec)resolve : null;
+  }
+
+  @NotNull
+  public static List<GoNamedElement> getAccessibleMembers(@Nullable GoTypeSpec spec, @Nullable PsiFile contextFile) {
+    if (spec == null) return Collections.emptyList();
+    List<GoNamedElement> result = ContainerUtil.newArrayList();
+    for (GoNamedElement member : getMembers(spec)) {
+      if (!member.isBlank() && isAccessible(member, contextFile)) result.add(member);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2014 Sergey Ignatov, Alexander Zolotov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.stubs.index;
+
+import com.goide.GoFileElementType;
+import com.goide.GoFileType;
+import com.goide.psi.GoFile;
+import com.goide.psi.GoImportSpec;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Import paths used by each Go file, so that the number of files importing a package is known without loading them.
+ */
+public class GoImportPathsIndex extends ScalarIndexExtension<String> {
+  public static final ID<String, Void> KEY = ID.create("go.import.paths");
+
+  public static int getImportingFilesCount(@NotNull Project project, @NotNull String importPath) {
+    return FileBasedIndex.getInstance().getContainingFiles(KEY, importPath, GlobalSearchScope.projectScope(project)).size();
+  }
+
+  @NotNull
+  @Override
+  public ID<String, Void> getName() {
+    return KEY;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Void, FileContent> getIndexer() {
+    return new DataIndexer<String, Void, FileContent>() {
+      @NotNull
+      @Override
+      public Map<String, Void> map(@NotNull FileContent inputData) {
+        PsiFile file = inputData.getPsiFile();
+        if (!(file instanceof GoFile)) return Collections.emptyMap();
+        Map<String, Void> result = ContainerUtil.newHashMap();
+        for (GoImportSpec spec : ((GoFile)file).getImports()) {
+          String path = spec.getPath();
+          if (!StringUtil.isEmpty(path)) result.put(path, null);
+        }
+        return result;
+      }
+    };
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(GoFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return GoFileElementType.VERSION;
+  }
+}
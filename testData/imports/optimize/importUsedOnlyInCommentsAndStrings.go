@@ -0,0 +1,10 @@
+package main
+
+import "fmt"
+import "os"
+
+// fmt.Println("commented out")
+func main() {
+  s := "fmt.Println"
+  os.Exit(len(s))
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package main
+
+import "os"
+
+// fmt.Println("commented out")
+func main() {
+  s := "fmt.Println"
+  os.Exit(len(s))
+}
\ No newline at end of file
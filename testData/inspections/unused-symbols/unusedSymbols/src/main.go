@@ -0,0 +1,27 @@
+package main
+
+import "fmt"
+
+const usedConst = 1
+const unusedConst = 2
+
+var usedVar = usedConst
+var unusedVar int
+var assignedOnly int
+
+type usedType struct{}
+type unusedType struct{}
+
+func init() {
+	assignedOnly = 1
+}
+
+func main() {
+	var t usedType
+	fmt.Println(t, usedVar)
+	usedFunc()
+}
+
+func usedFunc() {}
+
+func unusedFunc() {}
@@ -0,0 +1,9 @@
+package main
+
+import "testing"
+
+func TestSomething(t *testing.T) {}
+
+func BenchmarkSomething(b *testing.B) {}
+
+func unusedHelper() {}
@@ -17,18 +17,26 @@
 package com.goide;
 
 import com.goide.inspections.GoUnusedImportDeclaration;
+import com.goide.inspections.batch.GoBatchInspectionRunner;
 import com.goide.inspections.unresolved.GoUnresolvedReferenceInspection;
 import com.goide.inspections.unresolved.GoUnusedFunctionInspection;
 import com.goide.inspections.unresolved.GoUnusedGlobalVariableInspection;
+import com.goide.inspections.unresolved.GoUnusedSymbolsInspection;
 import com.goide.inspections.unresolved.GoUnusedVariableInspection;
 import com.intellij.analysis.AnalysisScope;
 import com.intellij.codeInsight.completion.CompletionType;
 import com.intellij.codeInspection.InspectionManager;
 import com.intellij.codeInspection.InspectionProfileEntry;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.ProblemDescriptor;
 import com.intellij.codeInspection.ex.InspectionManagerEx;
 import com.intellij.codeInspection.ex.InspectionToolRegistrar;
 import com.intellij.codeInspection.ex.InspectionToolWrapper;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.roots.ContentIterator;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
@@ -42,38 +50,80 @@ import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.testFramework.UsefulTestCase;
 import com.intellij.testFramework.fixtures.impl.CodeInsightTestFixtureImpl;
 import com.intellij.testFramework.fixtures.impl.GlobalInspectionContextForTests;
+import com.intellij.util.Processor;
 import com.intellij.util.ThrowableRunnable;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.indexing.FileContentImpl;
 import com.intellij.util.indexing.IndexingDataKeys;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GoPerformanceTest extends GoCodeInsightFixtureTestCase {
+  private static final String PARSER_BASELINE = "parser.baseline.properties";
+  private static final String UPDATE_BASELINE_PROPERTY = "go.performance.update.baseline";
 
-  public void _testUnusedVariable() {
-    doInspectionTest(new GoUnusedVariableInspection(), TimeUnit.MINUTES.toMillis(4));
+  public void testUnusedVariable() {
+    doInspectionTest(new GoUnusedVariableInspection(), TimeUnit.SECONDS.toMillis(30));
   }
 
   public void _testUnusedGlobalVariable() {
     doInspectionTest(new GoUnusedGlobalVariableInspection(), TimeUnit.MINUTES.toMillis(4));
   }
 
-  public void _testUnresolvedReference() {
-    doInspectionTest(new GoUnresolvedReferenceInspection(), TimeUnit.MINUTES.toMillis(4));
+  public void testUnresolvedReference() {
+    doInspectionTest(new GoUnresolvedReferenceInspection(), TimeUnit.SECONDS.toMillis(45));
   }
 
   public void testUnusedFunction() {
     doInspectionTest(new GoUnusedFunctionInspection(), TimeUnit.MINUTES.toMillis(3));
   }
 
+  public void testUnusedSymbolsBatch() {
+    doInspectionTest(new GoUnusedSymbolsInspection(), TimeUnit.MINUTES.toMillis(1), false);
+  }
+
   public void testUnusedImport() {
     doInspectionTest(new GoUnusedImportDeclaration(), TimeUnit.MINUTES.toMillis(1));
   }
 
+  public void testBatchInspections() {
+    VirtualFile sourceDir = installTestData("docker");
+    if (sourceDir == null) return;
+    final List<VirtualFile> files = ContainerUtil.newArrayList();
+    VfsUtilCore.iterateChildrenRecursively(sourceDir, null, new ContentIterator() {
+      @Override
+      public boolean processFile(VirtualFile file) {
+        if (file.getFileType() == GoFileType.INSTANCE) files.add(file);
+        return true;
+      }
+    });
+    final GoBatchInspectionRunner runner = new GoBatchInspectionRunner(getProject(), GoBatchInspectionRunner.getDefaultTools());
+    PlatformTestUtil.startPerformanceTest(getTestName(true), (int)TimeUnit.MINUTES.toMillis(2), new ThrowableRunnable() {
+      @Override
+      public void run() throws Throwable {
+        assertTrue(runner.run(files, null, new GoBatchInspectionRunner.ResultConsumer() {
+          @Override
+          public void consume(@NotNull VirtualFile file, @NotNull LocalInspectionTool tool, @NotNull List<ProblemDescriptor> list) {
+          }
+        }));
+      }
+    }).cpuBound().usesAllCPUCores().assertTiming();
+  }
+
   public void testPerformanceA() {
     doHighlightingTest(TimeUnit.SECONDS.toMillis(10));
   }
@@ -113,6 +163,10 @@ public class GoPerformanceTest extends GoCodeInsightFixtureTestCase {
   }
 
   private void doInspectionTest(@NotNull InspectionProfileEntry tool, long expected) {
+    doInspectionTest(tool, expected, true);
+  }
+
+  private void doInspectionTest(@NotNull InspectionProfileEntry tool, long expected, boolean compareResults) {
     VirtualFile sourceDir = installTestData("docker");
     if (sourceDir == null) return;
     //noinspection ConstantConditions
@@ -131,6 +185,7 @@ public class GoPerformanceTest extends GoCodeInsightFixtureTestCase {
         InspectionTestUtil.runTool(wrapper, scope, globalContext);
       }
     }).cpuBound().usesAllCPUCores().assertTiming();
+    if (!compareResults) return;
     InspectionTestUtil.compareToolResults(globalContext, wrapper, false, new File(getTestDataPath(), wrapper.getShortName()).getPath());
   }
 
@@ -144,8 +199,8 @@ public class GoPerformanceTest extends GoCodeInsightFixtureTestCase {
     return myFixture.copyDirectoryToProject(testData, testData);
   }
   
-  public void testParserAndStubs() {
-    final File go = new File(getTestDataPath(), "go");
+  public void testParserAndStubs() throws Throwable {
+    File go = new File(getTestDataPath(), "go");
     if (!go.exists()) {
       System.err.println(
         "For performance tests you need to have a go sources (https://storage.googleapis.com/golang/go1.4.2.src.tar.gz) inside testData/" +
@@ -154,41 +209,175 @@ public class GoPerformanceTest extends GoCodeInsightFixtureTestCase {
       return;
     }
 
-    PlatformTestUtil.startPerformanceTest(getTestName(true), (int)TimeUnit.MINUTES.toMillis(1), new ThrowableRunnable() {
+    final VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(go);
+    assertNotNull(root);
+    final List<VirtualFile> files = ContainerUtil.newArrayList();
+    VfsUtilCore.visitChildrenRecursively(root, new VirtualFileVisitor() {
+      @NotNull
+      @Override
+      public Result visitFileEx(@NotNull VirtualFile file) {
+        if (file.isDirectory() && "testdata".equals(file.getName())) return SKIP_CHILDREN;
+        if (file.isDirectory() && "test".equals(file.getName()) && file.getParent().equals(root)) return SKIP_CHILDREN;
+        if (file.getFileType() == GoFileType.INSTANCE) files.add(file);
+        return CONTINUE;
+      }
+    });
+    final Map<VirtualFile, String> contents = ContainerUtil.newHashMap();
+    for (VirtualFile file : files) {
+      contents.put(file, FileUtil.loadFile(new File(file.getPath()), "UTF-8", true).trim());
+    }
+
+    File baselineFile = new File(getTestDataPath(), PARSER_BASELINE);
+    Properties baseline = new Properties();
+    FileInputStream in = new FileInputStream(baselineFile);
+    try {
+      baseline.load(in);
+    }
+    finally {
+      in.close();
+    }
+    String expected = baseline.getProperty(getTestName(true));
+    boolean update = Boolean.getBoolean(UPDATE_BASELINE_PROPERTY);
+    if (expected == null && !update) {
+      System.err.println("No " + getTestName(true) + " baseline in " + baselineFile + ", timing is not checked; run with -D" +
+                         UPDATE_BASELINE_PROPERTY + "=true to record one");
+    }
+
+    // only parsing and stub building are timed, the results are checked afterwards
+    final Ref<ParserStatistics> statistics = Ref.create();
+    ThrowableRunnable run = new ThrowableRunnable() {
       @Override
       public void run() throws Throwable {
-        final VirtualFile root = LocalFileSystem.getInstance().findFileByIoFile(go);
-        assertNotNull(root);
-        VfsUtilCore.visitChildrenRecursively(root, new VirtualFileVisitor() {
-          @NotNull
+        final ParserStatistics current = new ParserStatistics();
+        long start = System.nanoTime();
+        assertTrue(processConcurrently(files, new Processor<VirtualFile>() {
           @Override
-          public Result visitFileEx(@NotNull VirtualFile file) {
-            if (file.isDirectory() && "testdata".equals(file.getName())) return SKIP_CHILDREN;
-            if (file.isDirectory() && "test".equals(file.getName()) && file.getParent().equals(root)) return SKIP_CHILDREN;
-            if (file.getFileType() != GoFileType.INSTANCE) return CONTINUE;
-            try {
-              System.out.print(".");
-              String path = file.getPath();
-              String fileContent = FileUtil.loadFile(new File(path), "UTF-8", true).trim();
-              PsiFile psi = PsiFileFactory.getInstance(getProject()).createFileFromText(file.getName(), file.getFileType(), fileContent);
-              assertFalse(path + " contains error elements", DebugUtil.psiToString(psi, true).contains("PsiErrorElement"));
-              String full = DebugUtil.stubTreeToString(GoFileElementType.INSTANCE.getBuilder().buildStubTree(psi));
-              psi.putUserData(IndexingDataKeys.VIRTUAL_FILE, file);
-              FileContentImpl content = new FileContentImpl(file, fileContent, file.getCharset());
-              PsiFile psiFile = content.getPsiFile();
-              String fast = DebugUtil.stubTreeToString(GoFileElementType.INSTANCE.getBuilder().buildStubTree(psiFile));
-              if (!Comparing.strEqual(full, fast)) {
-                System.err.println(path);
-                UsefulTestCase.assertSameLines(full, fast);
-              }
-            }
-            catch (IOException ignored) {
-            }
-            return CONTINUE;
+          public boolean process(VirtualFile file) {
+            parseAndBuildStubs(file, contents.get(file), current);
+            return true;
+          }
+        }));
+        current.myTotalNanos = System.nanoTime() - start;
+        statistics.set(current);
+      }
+    };
+    if (update || expected == null) {
+      run.run();
+    }
+    else {
+      PlatformTestUtil.startPerformanceTest(getTestName(true), (int)(Long.parseLong(expected) * 11 / 10), run)
+        .cpuBound().usesAllCPUCores().assertTiming();
+    }
+
+    assertTrue(processConcurrently(files, new Processor<VirtualFile>() {
+      @Override
+      public boolean process(VirtualFile file) {
+        checkParserAndStubs(file, contents.get(file));
+        return true;
+      }
+    }));
+
+    if (update) {
+      ParserStatistics result = statistics.get();
+      baseline.setProperty(getTestName(true), String.valueOf(TimeUnit.NANOSECONDS.toMillis(result.myTotalNanos)));
+      FileOutputStream out = new FileOutputStream(baselineFile);
+      try {
+        baseline.store(out, "Parser and stub builder timings in ms over go1.4.2 sources, see GoPerformanceTest#testParserAndStubs");
+      }
+      finally {
+        out.close();
+      }
+      System.err.println("Stored the " + getTestName(true) + " baseline in " + baselineFile + ":\n" + result);
+    }
+  }
+
+  private static boolean processConcurrently(@NotNull List<VirtualFile> files, @NotNull final Processor<VirtualFile> processor) {
+    return JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, null, false, new Processor<VirtualFile>() {
+      @Override
+      public boolean process(final VirtualFile file) {
+        ApplicationManager.getApplication().runReadAction(new Runnable() {
+          @Override
+          public void run() {
+            processor.process(file);
           }
         });
+        return true;
       }
-    }).usesAllCPUCores().assertTiming();
+    });
+  }
+
+  private void parseAndBuildStubs(@NotNull VirtualFile file, @NotNull String fileContent, @NotNull ParserStatistics statistics) {
+    long allocated = ParserStatistics.allocatedBytes();
+    long start = System.nanoTime();
+    PsiFile psi = PsiFileFactory.getInstance(getProject()).createFileFromText(file.getName(), file.getFileType(), fileContent);
+    GoFileElementType.INSTANCE.getBuilder().buildStubTree(psi);
+    statistics.record(file.getPath(), fileContent.length(), System.nanoTime() - start, ParserStatistics.allocatedBytes() - allocated);
+  }
+
+  private void checkParserAndStubs(@NotNull VirtualFile file, @NotNull String fileContent) {
+    String path = file.getPath();
+    PsiFile psi = PsiFileFactory.getInstance(getProject()).createFileFromText(file.getName(), file.getFileType(), fileContent);
+    assertFalse(path + " contains error elements", DebugUtil.psiToString(psi, true).contains("PsiErrorElement"));
+    String full = DebugUtil.stubTreeToString(GoFileElementType.INSTANCE.getBuilder().buildStubTree(psi));
+    psi.putUserData(IndexingDataKeys.VIRTUAL_FILE, file);
+    FileContentImpl content = new FileContentImpl(file, fileContent, file.getCharset());
+    PsiFile psiFile = content.getPsiFile();
+    String fast = DebugUtil.stubTreeToString(GoFileElementType.INSTANCE.getBuilder().buildStubTree(psiFile));
+    if (!Comparing.strEqual(full, fast)) {
+      System.err.println(path);
+      UsefulTestCase.assertSameLines(full, fast);
+    }
+  }
+
+  /**
+   * Throughput of a parser run. Per-file time and allocation are measured on the thread that parsed the file,
+   * the slowest files are reported as outliers.
+   */
+  private static class ParserStatistics {
+    private static final int OUTLIERS = 10;
+
+    private final AtomicInteger myFiles = new AtomicInteger();
+    private final AtomicLong myBytes = new AtomicLong();
+    private final AtomicLong myAllocatedBytes = new AtomicLong();
+    private final Map<String, Long> myNanos = ContainerUtil.newConcurrentMap();
+    private long myTotalNanos;
+
+    private static long allocatedBytes() {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+      return 0;
+    }
+
+    private void record(@NotNull String path, int bytes, long nanos, long allocatedBytes) {
+      myFiles.incrementAndGet();
+      myBytes.addAndGet(bytes);
+      myAllocatedBytes.addAndGet(allocatedBytes);
+      myNanos.put(path, nanos);
+    }
+
+    @Override
+    public String toString() {
+      double seconds = myTotalNanos / 1e9;
+      int files = myFiles.get();
+      StringBuilder result = new StringBuilder();
+      result.append(String.format("%d files, %d ms, %.1f files/sec, %.1f KB/sec, %d KB allocated per file%n",
+                                  files, TimeUnit.NANOSECONDS.toMillis(myTotalNanos), files / seconds,
+                                  myBytes.get() / seconds / 1024, files == 0 ? 0 : myAllocatedBytes.get() / files / 1024));
+      List<Map.Entry<String, Long>> entries = ContainerUtil.newArrayList(myNanos.entrySet());
+      Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(@NotNull Map.Entry<String, Long> e1, @NotNull Map.Entry<String, Long> e2) {
+          return e2.getValue().compareTo(e1.getValue());
+        }
+      });
+      result.append("Slowest files:\n");
+      for (Map.Entry<String, Long> entry : ContainerUtil.getFirstItems(entries, OUTLIERS)) {
+        result.append(String.format("  %d ms %s%n", TimeUnit.NANOSECONDS.toMillis(entry.getValue()), entry.getKey()));
+      }
+      return result.toString();
+    }
   }
 
   @Override
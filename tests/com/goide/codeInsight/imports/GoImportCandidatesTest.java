@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.codeInsight.imports;
+
+import com.goide.GoCodeInsightFixtureTestCase;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.IOException;
+
+public class GoImportCandidatesTest extends GoCodeInsightFixtureTestCase {
+  public void testVendoredPackagesGoLast() throws IOException {
+    myFixture.getTempDirFixture().createFile("a/vendor/pack/pack.go", "package pack");
+    myFixture.getTempDirFixture().createFile("z/pack/pack.go", "package pack");
+    doTest("z/pack", "a/vendor/pack");
+  }
+
+  public void testFrequentlyImportedPackagesGoFirst() throws IOException {
+    myFixture.getTempDirFixture().createFile("a/pack/pack.go", "package pack");
+    myFixture.getTempDirFixture().createFile("b/pack/pack.go", "package pack");
+    myFixture.getTempDirFixture().createFile("user/user.go", "package user; import `b/pack`");
+    doTest("b/pack", "a/pack");
+  }
+
+  public void testContextPackageIsExcluded() throws IOException {
+    myFixture.getTempDirFixture().createFile("main/pack.go", "package pack");
+    myFixture.getTempDirFixture().createFile("other/pack/pack.go", "package pack");
+    doTest("other/pack");
+  }
+
+  public void testVendoringDepth() {
+    assertEquals(0, GoImportCandidates.getVendoringDepth("github.com/user/pack"));
+    assertEquals(1, GoImportCandidates.getVendoringDepth("github.com/user/project/vendor/pack"));
+    assertEquals(2, GoImportCandidates.getVendoringDepth("Godeps/_workspace/src/github.com/user/vendor/pack"));
+  }
+
+  private void doTest(String... expected) throws IOException {
+    VirtualFile file = myFixture.getTempDirFixture().createFile("main/main.go", "package main; func main() { pack.Foo() }");
+    myFixture.configureFromExistingVirtualFile(file);
+    assertOrderedEquals(GoImportCandidates.getInstance(myFixture.getFile()).getImportPaths("pack", myFixture.getFile()), expected);
+  }
+}
@@ -38,6 +38,7 @@ public class GoImportOptimizerTest extends GoCodeInsightFixtureTestCase {
   public void testDuplicatedImportsWithDifferentString() { doTest(); } 
   public void testUnusedDuplicatedImports() { doTest(); }
   public void testImportWithSameIdentifier() { doTest(); }
+  public void testImportUsedOnlyInCommentsAndStrings() { doTest(); }
   public void testImportPackageWithMainFiles() { doTest(); }
   public void testImportDirectoryWithoutPackages() {
     doTest(); 
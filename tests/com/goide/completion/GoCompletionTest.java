@@ -16,6 +16,7 @@
 
 package com.goide.completion;
 
+import com.intellij.codeInsight.completion.CompletionType;
 import com.intellij.codeInsight.lookup.Lookup;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -479,6 +480,24 @@ public class GoCompletionTest extends GoCompletionTestBase {
     assertSameElements(strings, "directory_name", "main");
   }
 
+  public void testChainCompletion() {
+    doTestVariants("package foo; type Inner struct {Field int}; func (i Inner) Method() {}; " +
+                   "type Outer struct {In Inner}; func (o Outer) Get() *Inner {return nil}; " +
+                   "func main() {var o Outer; o.<caret>}", CompletionType.BASIC, 2, CheckType.INCLUDES,
+                   "In", "Get", "In.Field", "In.Method", "Get().Field", "Get().Method");
+  }
+
+  public void testChainCompletionWithPromotedMembers() {
+    doTestVariants("package foo; type Base struct {Id int}; type Inner struct {Base}; " +
+                   "type Outer struct {In Inner}; func main() {var o Outer; o.<caret>}", CompletionType.BASIC, 2, CheckType.INCLUDES,
+                   "In.Base", "In.Id");
+  }
+
+  public void testNoChainCompletionOnFirstInvocation() {
+    doTestVariants("package foo; type Inner struct {Field int}; type Outer struct {In Inner}; " +
+                   "func main() {var o Outer; o.<caret>}", CompletionType.BASIC, 1, CheckType.EXCLUDES, "In.Field");
+  }
+
   private void doTestEmptyCompletion() {
     myFixture.testCompletionVariants(getTestName(true) + ".go");
   }
@@ -0,0 +1,112 @@
+package com.goide.debugger.gdb;
+
+import com.goide.debugger.gdb.messages.GdbStackFrame;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GdbStackCacheTest {
+  /**
+   * Verifies that the bottom of the cached stack is reused when the top frame changes.
+   */
+  @Test
+  public void testStepInTopFrame() {
+    List<GdbStackFrame> cached = createStack(0, 10);
+    List<GdbStackFrame> prefix = createStack(100, 1);
+    prefix.addAll(cached.subList(1, 3));
+
+    List<GdbStackFrame> stack = GdbStackCache.merge(cached, prefix, 10);
+    Assert.assertNotNull(stack);
+    Assert.assertEquals(10, stack.size());
+    Assert.assertEquals(new Long(100), stack.get(0).address);
+    Assert.assertSame(cached.get(9), stack.get(9));
+  }
+
+  /**
+   * Verifies that frames taken from the cached stack are renumbered when the depth changes.
+   */
+  @Test
+  public void testStepIntoCall() {
+    List<GdbStackFrame> cached = createStack(0, 10);
+    List<GdbStackFrame> prefix = createStack(100, 1);
+    prefix.add(createFrame(1, 0));
+    prefix.add(createFrame(2, 1));
+
+    List<GdbStackFrame> stack = GdbStackCache.merge(cached, prefix, 11);
+    Assert.assertNotNull(stack);
+    Assert.assertEquals(11, stack.size());
+    for (int i = 0; i < stack.size(); i++) {
+      Assert.assertEquals(new Integer(i), stack.get(i).level);
+    }
+    Assert.assertEquals(cached.get(9).address, stack.get(10).address);
+    Assert.assertEquals(new Integer(9), cached.get(9).level);
+  }
+
+  /**
+   * Verifies that the cached stack is not reused when the frames where the stacks meet differ.
+   */
+  @Test
+  public void testMismatch() {
+    List<GdbStackFrame> cached = createStack(0, 10);
+    Assert.assertNull(GdbStackCache.merge(cached, createStack(100, 3), 10));
+    // The stack got deeper than the cached one and the prefix does not reach it
+    Assert.assertNull(GdbStackCache.merge(cached, createStack(100, 3), 20));
+    // Only the bottom of the prefix agrees with the cached stack
+    List<GdbStackFrame> prefix = createStack(100, 2);
+    prefix.addAll(cached.subList(2, 5));
+    Assert.assertNull(GdbStackCache.merge(cached, prefix, 10));
+    // A prefix covering the whole stack is the stack
+    List<GdbStackFrame> whole = createStack(100, 3);
+    Assert.assertSame(whole, GdbStackCache.merge(cached, whole, 3));
+  }
+
+  /**
+   * Verifies that the frames of a step out of a call are taken from the cached stack.
+   */
+  @Test
+  public void testStepOut() {
+    List<GdbStackFrame> cached = createStack(0, 10);
+    List<GdbStackFrame> prefix = createStack(200, 1);
+    prefix.addAll(cached.subList(2, 4));
+
+    List<GdbStackFrame> stack = GdbStackCache.merge(cached, prefix, 9);
+    Assert.assertNotNull(stack);
+    Assert.assertEquals(9, stack.size());
+    Assert.assertEquals(new Long(200), stack.get(0).address);
+    Assert.assertEquals(cached.get(9).address, stack.get(8).address);
+    Assert.assertEquals(new Integer(8), stack.get(8).level);
+  }
+
+  /**
+   * Verifies that forgotten stacks are not returned.
+   */
+  @Test
+  public void testRemove() {
+    GdbStackCache cache = new GdbStackCache();
+    cache.put(1, createStack(0, 3));
+    cache.put(2, createStack(0, 3));
+    cache.remove(1);
+    Assert.assertNull(cache.get(1));
+    Assert.assertNotNull(cache.get(2));
+    cache.clear();
+    Assert.assertNull(cache.get(2));
+  }
+
+  private static List<GdbStackFrame> createStack(int firstAddress, int depth) {
+    List<GdbStackFrame> stack = new ArrayList<GdbStackFrame>();
+    for (int i = 0; i < depth; i++) {
+      stack.add(createFrame(i, firstAddress + i));
+    }
+    return stack;
+  }
+
+  private static GdbStackFrame createFrame(int level, long address) {
+    GdbStackFrame frame = new GdbStackFrame();
+    frame.level = level;
+    frame.address = address;
+    frame.function = "f" + address;
+    return frame;
+  }
+}
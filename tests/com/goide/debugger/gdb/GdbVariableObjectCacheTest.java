@@ -0,0 +1,89 @@
+package com.goide.debugger.gdb;
+
+import com.goide.debugger.gdb.messages.GdbVariableObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class GdbVariableObjectCacheTest {
+  /**
+   * Verifies that variable objects are scoped by thread and frame.
+   */
+  @Test
+  public void testScopes() {
+    GdbVariableObjectCache cache = new GdbVariableObjectCache(10);
+    GdbVariableObject inFrame0 = createVariableObject("var1");
+    GdbVariableObject inFrame1 = createVariableObject("var2");
+    cache.put(1, 0, "x", inFrame0);
+    cache.put(1, 1, "x", inFrame1);
+
+    Assert.assertSame(inFrame0, cache.get(1, 0, "x"));
+    Assert.assertSame(inFrame1, cache.get(1, 1, "x"));
+    Assert.assertNull(cache.get(2, 0, "x"));
+    Assert.assertSame(inFrame1, cache.getByName("var2"));
+    Assert.assertEquals(Collections.singletonList(inFrame0), cache.getFrameObjects(1, 0));
+    Assert.assertTrue(cache.getFrameObjects(2, 0).isEmpty());
+  }
+
+  /**
+   * Verifies that the least recently used variable objects are evicted.
+   */
+  @Test
+  public void testEviction() {
+    GdbVariableObjectCache cache = new GdbVariableObjectCache(2);
+    GdbVariableObject a = createVariableObject("var1");
+    GdbVariableObject b = createVariableObject("var2");
+    GdbVariableObject c = createVariableObject("var3");
+    Assert.assertTrue(cache.put(1, 0, "a", a).isEmpty());
+    Assert.assertTrue(cache.put(1, 0, "b", b).isEmpty());
+
+    // Using a makes b the least recently used object
+    Assert.assertSame(a, cache.get(1, 0, "a"));
+    List<GdbVariableObject> evicted = cache.put(1, 0, "c", c);
+    Assert.assertEquals(Collections.singletonList(b), evicted);
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNull(cache.get(1, 0, "b"));
+    Assert.assertNull(cache.getByName("var2"));
+  }
+
+  /**
+   * Verifies that looking a variable object up by its GDB name does not keep it from being evicted.
+   */
+  @Test
+  public void testLookupByNameKeepsRecency() {
+    GdbVariableObjectCache cache = new GdbVariableObjectCache(2);
+    GdbVariableObject a = createVariableObject("var1");
+    GdbVariableObject b = createVariableObject("var2");
+    cache.put(1, 0, "a", a);
+    cache.put(1, 0, "b", b);
+
+    Assert.assertSame(a, cache.getByName("var1"));
+    Assert.assertEquals(Collections.singletonList(a), cache.put(1, 0, "c", createVariableObject("var3")));
+  }
+
+  /**
+   * Verifies that replaced and removed variable objects are no longer reachable.
+   */
+  @Test
+  public void testReplaceAndRemove() {
+    GdbVariableObjectCache cache = new GdbVariableObjectCache(10);
+    GdbVariableObject first = createVariableObject("var1");
+    GdbVariableObject second = createVariableObject("var2");
+    cache.put(1, 0, "x", first);
+    Assert.assertEquals(Collections.singletonList(first), cache.put(1, 0, "x", second));
+    Assert.assertNull(cache.getByName("var1"));
+
+    Assert.assertSame(second, cache.remove("var2"));
+    Assert.assertNull(cache.get(1, 0, "x"));
+    Assert.assertNull(cache.remove("var2"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  private static GdbVariableObject createVariableObject(String name) {
+    GdbVariableObject variableObject = new GdbVariableObject();
+    variableObject.name = name;
+    return variableObject;
+  }
+}
@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public class GdbMiParserTest {
@@ -699,4 +700,108 @@ public class GdbMiParserTest {
     Assert.assertEquals(records.size(), 1);
     records.clear();
   }
+
+  /**
+   * Tests that records and strings split across reads at any position are parsed the same as in one read.
+   */
+  @Test
+  public void testSplitBuffers() throws UnsupportedEncodingException {
+    String messageStr =
+      "12^done,value=\"0x1 \\\"hello\\\\world\\\"\\n\",names=[\"a\",\"bc\"]\r\n" +
+      "~\"text\\x41\\101\"\r\n" +
+      "(gdb) \r\n";
+    byte[] bytes = messageStr.getBytes("US-ASCII");
+    for (int split = 0; split <= bytes.length; split++) {
+      GdbMiParser parser = new GdbMiParser();
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, split);
+      parser.process(buffer);
+      Assert.assertEquals(split, buffer.position());
+      buffer.limit(bytes.length);
+      parser.process(buffer);
+
+      List<GdbMiRecord> records = parser.getRecords();
+      Assert.assertEquals(2, records.size());
+
+      GdbMiResultRecord resultRecord = (GdbMiResultRecord)records.get(0);
+      Assert.assertEquals(Long.valueOf(12), resultRecord.userToken);
+      Assert.assertEquals("done", resultRecord.className);
+      Assert.assertEquals(2, resultRecord.results.size());
+      Assert.assertEquals("0x1 \"hello\\world\"\n", resultRecord.results.get(0).value.string);
+      GdbMiList names = resultRecord.results.get(1).value.list;
+      Assert.assertEquals(2, names.values.size());
+      Assert.assertEquals("a", names.values.get(0).string);
+      Assert.assertEquals("bc", names.values.get(1).string);
+
+      GdbMiStreamRecord streamRecord = (GdbMiStreamRecord)records.get(1);
+      Assert.assertEquals(GdbMiRecord.Type.Console, streamRecord.type);
+      Assert.assertEquals("textAA", streamRecord.message);
+    }
+  }
+
+  /**
+   * Tests that tuples and lists nested in result values are parsed when they are accessed.
+   */
+  @Test
+  public void testLazyNestedValues() throws UnsupportedEncodingException {
+    String messageStr =
+      "^done,stack=[frame={level=\"0\",args=[{name=\"a\",value=\"{x = 1}\"}],empty={}}," +
+      "frame={level=\"1\",args=[]}]\r\n" +
+      "(gdb)\r\n";
+    byte[] bytes = messageStr.getBytes("US-ASCII");
+    for (int split = 0; split <= bytes.length; split++) {
+      GdbMiParser parser = new GdbMiParser();
+      parser.process(ByteBuffer.wrap(bytes, 0, split));
+      parser.process(ByteBuffer.wrap(bytes, split, bytes.length - split));
+
+      List<GdbMiRecord> records = parser.getRecords();
+      Assert.assertEquals(1, records.size());
+      GdbMiList stack = ((GdbMiResultRecord)records.get(0)).results.get(0).value.list;
+      Assert.assertEquals(GdbMiList.Type.Results, stack.type);
+      Assert.assertEquals(2, stack.results.size());
+
+      GdbMiValue frame = stack.results.get(0).value;
+      Assert.assertEquals(GdbMiValue.Type.Tuple, frame.type);
+      Assert.assertTrue(frame.tuple instanceof GdbMiLazyList);
+      Assert.assertFalse(((GdbMiLazyList)frame.tuple).isParsed());
+      Assert.assertEquals(3, frame.tuple.size());
+      Assert.assertTrue(((GdbMiLazyList)frame.tuple).isParsed());
+
+      Assert.assertEquals("level", frame.tuple.get(0).variable);
+      Assert.assertEquals("0", frame.tuple.get(0).value.string);
+      GdbMiList args = frame.tuple.get(1).value.list;
+      Assert.assertEquals(GdbMiList.Type.Values, args.type);
+      Assert.assertEquals(1, args.values.size());
+      GdbMiResult value = args.values.get(0).tuple.get(1);
+      Assert.assertEquals("value", value.variable);
+      Assert.assertEquals("{x = 1}", value.value.string);
+      Assert.assertEquals(0, frame.tuple.get(2).value.tuple.size());
+
+      GdbMiValue frame1 = stack.results.get(1).value;
+      Assert.assertEquals(GdbMiList.Type.Empty, frame1.tuple.get(1).value.list.type);
+    }
+  }
+
+  /**
+   * Tests that the raw text of completed records is dropped when every read ends in the middle of a record.
+   */
+  @Test
+  public void testRawTextOfCompletedRecordsIsDropped() throws UnsupportedEncodingException {
+    byte[] record = "^done,value={a=\"1\",b=[\"2\"]}\r\n".getBytes("US-ASCII");
+    GdbMiParser parser = new GdbMiParser();
+    parser.process(ByteBuffer.wrap(record, 0, record.length / 2));
+    byte[] chunk = new byte[record.length];
+    for (int i = 0; i < 10000; i++) {
+      System.arraycopy(record, record.length / 2, chunk, 0, record.length - record.length / 2);
+      System.arraycopy(record, 0, chunk, record.length - record.length / 2, record.length / 2);
+      parser.process(chunk);
+      Assert.assertTrue(parser.getRawCapacity() <= GdbMiParser.RAW_BUFFER_SIZE);
+    }
+
+    List<GdbMiRecord> records = parser.getRecords();
+    Assert.assertEquals(10000, records.size());
+    GdbMiResultRecord last = (GdbMiResultRecord)records.get(records.size() - 1);
+    GdbMiValue value = last.results.get(0).value;
+    Assert.assertEquals("1", value.tuple.get(0).value.string);
+    Assert.assertEquals("2", value.tuple.get(1).value.list.values.get(0).string);
+  }
 }
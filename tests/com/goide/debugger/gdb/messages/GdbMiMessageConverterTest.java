@@ -3,6 +3,7 @@ package com.goide.debugger.gdb.messages;
 import com.goide.debugger.gdb.gdbmi.GdbMiParser;
 import com.goide.debugger.gdb.gdbmi.GdbMiRecord;
 import com.goide.debugger.gdb.gdbmi.GdbMiResultRecord;
+import com.goide.debugger.gdb.gdbmi.GdbMiUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -294,4 +295,109 @@ public class GdbMiMessageConverterTest {
     Assert.assertEquals(1, breakpoint.threadGroups.size());
     Assert.assertEquals("i1", breakpoint.threadGroups.get(0));
   }
+
+  /**
+   * Verifies the correct conversion of a thread exit notification.
+   */
+  @Test
+  public void testThreadExitedEvent() throws UnsupportedEncodingException {
+    // Parse the message
+    GdbMiParser parser = new GdbMiParser();
+    String messageStr = "=thread-exited,id=\"3\",group-id=\"i1\"\r\n";
+    parser.process(messageStr.getBytes("US-ASCII"));
+    List<GdbMiRecord> records = parser.getRecords();
+
+    // Convert the message
+    GdbMiResultRecord record = (GdbMiResultRecord)records.get(0);
+    Object object = GdbMiMessageConverter.processRecord(record);
+    Assert.assertNotNull(object);
+    Assert.assertTrue(object instanceof GdbThreadExitedEvent);
+    Assert.assertEquals(new Integer(3), ((GdbThreadExitedEvent)object).threadId);
+  }
+
+  /**
+   * Verifies the correct conversion of a page of variable object children.
+   */
+  @Test
+  public void testVariableObjectChildrenPage() throws UnsupportedEncodingException {
+    // Parse the message
+    GdbMiParser parser = new GdbMiParser();
+    String messageStr =
+      "^done,numchild=\"2\"," +
+      "children=[" +
+      "child={name=\"var1.[0]\",exp=\"[0]\",numchild=\"0\",value=\"1\",type=\"int\"}," +
+      "child={name=\"var1.[1]\",exp=\"[1]\",numchild=\"0\",value=\"2\",type=\"int\"}]," +
+      "has_more=\"1\"\r\n" +
+      "(gdb)\r\n";
+    parser.process(messageStr.getBytes("US-ASCII"));
+    List<GdbMiRecord> records = parser.getRecords();
+
+    // Convert the message
+    GdbMiResultRecord record = (GdbMiResultRecord)records.get(0);
+    Object object = GdbMiMessageConverter.processRecord(record, "-var-list-children");
+    Assert.assertNotNull(object);
+    Assert.assertTrue(object instanceof GdbVariableObjects);
+
+    GdbVariableObjects variableObjects = (GdbVariableObjects)object;
+    Assert.assertEquals(new Integer(2), variableObjects.numChildren);
+    Assert.assertEquals(Boolean.TRUE, variableObjects.hasMore);
+    Assert.assertEquals(2, variableObjects.objects.size());
+    Assert.assertEquals("var1.[1]", variableObjects.objects.get(1).name);
+    Assert.assertEquals("2", variableObjects.objects.get(1).value);
+  }
+
+  /**
+   * Verifies the correct conversion of a memory read message.
+   */
+  @Test
+  public void testMemoryBlocks() throws UnsupportedEncodingException {
+    // Parse the message
+    GdbMiParser parser = new GdbMiParser();
+    String messageStr =
+      "^done,memory=[{begin=\"0xc208032150\",offset=\"0x0000000000000000\",end=\"0xc208032160\"," +
+      "contents=\"50a04b00000000000500000000000000\"}]\r\n" +
+      "(gdb)\r\n";
+    parser.process(messageStr.getBytes("US-ASCII"));
+    List<GdbMiRecord> records = parser.getRecords();
+
+    // Convert the message
+    GdbMiResultRecord record = (GdbMiResultRecord)records.get(0);
+    Object object = GdbMiMessageConverter.processRecord(record, "-data-read-memory-bytes");
+    Assert.assertNotNull(object);
+    Assert.assertTrue(object instanceof GdbMemoryBlocks);
+
+    GdbMemoryBlocks memoryBlocks = (GdbMemoryBlocks)object;
+    Assert.assertEquals(1, memoryBlocks.blocks.size());
+    GdbMemoryBlock block = memoryBlocks.blocks.get(0);
+    Assert.assertEquals(new Long(0xc208032150l), block.begin);
+    Assert.assertEquals(new Long(0), block.offset);
+    Assert.assertEquals(new Long(0xc208032160l), block.end);
+
+    byte[] bytes = GdbMiUtil.parseHexBytes(block.contents);
+    Assert.assertEquals(16, bytes.length);
+    Assert.assertEquals((byte)0x50, bytes[0]);
+    Assert.assertEquals((byte)0xa0, bytes[1]);
+    Assert.assertEquals((byte)0x05, bytes[8]);
+  }
+
+  /**
+   * Verifies the correct conversion of a stack depth message.
+   */
+  @Test
+  public void testStackDepth() throws UnsupportedEncodingException {
+    // Parse the message
+    GdbMiParser parser = new GdbMiParser();
+    String messageStr =
+      "^done,depth=\"12\"\r\n" +
+      "(gdb)\r\n";
+    parser.process(messageStr.getBytes("US-ASCII"));
+    List<GdbMiRecord> records = parser.getRecords();
+
+    // Convert the message
+    GdbMiResultRecord record = (GdbMiResultRecord)records.get(0);
+    Object object = GdbMiMessageConverter.processRecord(record, "-stack-info-depth");
+    Assert.assertNotNull(object);
+    Assert.assertTrue(object instanceof GdbStackDepth);
+    Assert.assertEquals(new Integer(12), ((GdbStackDepth)object).depth);
+  }
 }
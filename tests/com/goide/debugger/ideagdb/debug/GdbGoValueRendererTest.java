@@ -0,0 +1,106 @@
+package com.goide.debugger.ideagdb.debug;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class GdbGoValueRendererTest {
+  /**
+   * Verifies that words are decoded as little-endian unsigned numbers.
+   */
+  @Test
+  public void testReadWord() {
+    byte[] bytes = {0x34, 0x12, 0, 0, (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff};
+    Assert.assertEquals(0x1234L, GdbGoValueRenderer.readWord(bytes, 0, 4));
+    Assert.assertEquals(0xffffffffL, GdbGoValueRenderer.readWord(bytes, 4, 4));
+    Assert.assertEquals(0xffffffff00001234L, GdbGoValueRenderer.readWord(bytes, 0, 8));
+  }
+
+  /**
+   * Verifies that addresses are found in plain and in prefixed pointer values.
+   */
+  @Test
+  public void testParseAddress() {
+    Assert.assertEquals(Long.valueOf(0xc208032150L), GdbGoValueRenderer.parseAddress("0xc208032150"));
+    Assert.assertEquals(Long.valueOf(0xc208032150L),
+                        GdbGoValueRenderer.parseAddress("(struct hchan<int> *) 0xc208032150"));
+    Assert.assertEquals(Long.valueOf(0), GdbGoValueRenderer.parseAddress("0x0"));
+    Assert.assertNull(GdbGoValueRenderer.parseAddress("{...}"));
+    Assert.assertNull(GdbGoValueRenderer.parseAddress("0x"));
+    Assert.assertNull(GdbGoValueRenderer.parseAddress(null));
+  }
+
+  /**
+   * Verifies that the Go runtime types are recognized from the types GDB reports.
+   */
+  @Test
+  public void testGetKind() {
+    Assert.assertEquals(GdbGoValueRenderer.Kind.String, GdbGoValueRenderer.getKind("struct string"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Slice, GdbGoValueRenderer.getKind("struct []int"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Map, GdbGoValueRenderer.getKind("struct hash<string,int> *"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Channel, GdbGoValueRenderer.getKind("struct hchan<int> *"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Interface, GdbGoValueRenderer.getKind("struct runtime.iface"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Interface, GdbGoValueRenderer.getKind("struct runtime.eface"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Other, GdbGoValueRenderer.getKind("int"));
+    Assert.assertEquals(GdbGoValueRenderer.Kind.Other, GdbGoValueRenderer.getKind(null));
+  }
+
+  /**
+   * Verifies the presentation of slice, map, channel and interface headers, including nil values.
+   */
+  @Test
+  public void testFormatHeader() {
+    Assert.assertEquals("len:3, cap:8",
+                        GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Slice, words(4, 0x1000, 3, 8), 4));
+    Assert.assertEquals("nil", GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Slice, words(8, 0, 0, 0), 8));
+    Assert.assertEquals("len:0, cap:4",
+                        GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Slice, words(8, 0x1000, 0, 4), 8));
+    Assert.assertEquals("len:7", GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Map, words(8, 7, 0), 8));
+    Assert.assertEquals("len:1, cap:5",
+                        GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Channel, words(8, 1, 5), 8));
+    Assert.assertEquals("nil", GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Interface, words(8, 0, 0), 8));
+    Assert.assertEquals("data:0xc208032150",
+                        GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Interface, words(8, 0x4000, 0xc208032150L), 8));
+  }
+
+  /**
+   * Verifies that short headers and kinds without a header are left to the raw presentation.
+   */
+  @Test
+  public void testFormatHeaderFallsBack() {
+    Assert.assertNull(GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Slice, words(8, 0x1000, 3), 8));
+    Assert.assertNull(GdbGoValueRenderer.formatHeader(GdbGoValueRenderer.Kind.Other, words(8, 1, 2), 8));
+  }
+
+  /**
+   * Verifies that strings are escaped and marked when only a part of them is shown.
+   */
+  @Test
+  public void testFormatString() {
+    Assert.assertEquals("\"hello\"", GdbGoValueRenderer.formatString("hello, world".getBytes(), 5));
+    Assert.assertEquals("\"a\\\"b\\n\"", GdbGoValueRenderer.formatString("a\"b\n".getBytes(), 4));
+    Assert.assertEquals("\"\"", GdbGoValueRenderer.formatString(new byte[0], 0));
+    // Only a part of the string could be read
+    Assert.assertEquals("\"abc\"...", GdbGoValueRenderer.formatString("abc".getBytes(), 10));
+
+    byte[] longString = new byte[GdbGoValueRenderer.MAX_STRING_LENGTH + 10];
+    Arrays.fill(longString, (byte)'x');
+    String value = GdbGoValueRenderer.formatString(longString, longString.length);
+    Assert.assertEquals(GdbGoValueRenderer.MAX_STRING_LENGTH + "\"\"...".length(), value.length());
+    Assert.assertTrue(value.endsWith("x\"..."));
+  }
+
+  /**
+   * Encodes the given words as little-endian words of the given size.
+   */
+  private static byte[] words(int size, long... words) {
+    byte[] bytes = new byte[words.length * size];
+    for (int i = 0; i < words.length; i++) {
+      for (int j = 0; j < size; j++) {
+        bytes[i * size + j] = (byte)(words[i] >>> 8 * j);
+      }
+    }
+    return bytes;
+  }
+}
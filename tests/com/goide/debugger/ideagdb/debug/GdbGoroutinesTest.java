@@ -0,0 +1,105 @@
+package com.goide.debugger.ideagdb.debug;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GdbGoroutinesTest {
+  // Offsets of the g fields of go1.4 on amd64
+  private static final int GOID = 152;
+  private static final int STATUS = 144;
+  private static final int PC = 64;
+  private static final int SP = 56;
+
+  /**
+   * Verifies that the g field offsets are computed from their addresses.
+   */
+  @Test
+  public void testComputeLayout() {
+    GdbGoroutines.Layout layout = GdbGoroutines.computeLayout(addresses(0x10000), 8);
+    Assert.assertNotNull(layout);
+    Assert.assertEquals(GOID, layout.goid);
+    Assert.assertEquals(STATUS, layout.status);
+    Assert.assertEquals(PC, layout.pc);
+    Assert.assertEquals(SP, layout.sp);
+    Assert.assertEquals(SP, layout.start);
+    Assert.assertEquals(GOID + 8 - SP, layout.size);
+  }
+
+  /**
+   * Verifies that no layout is computed when a field cannot be evaluated or lies outside of g.
+   */
+  @Test
+  public void testComputeLayoutOfUnknownRuntime() {
+    long[] addresses = addresses(0x10000);
+    addresses[2] = -1;
+    Assert.assertNull(GdbGoroutines.computeLayout(addresses, 8));
+    Assert.assertNull(GdbGoroutines.computeLayout(new long[]{-1, 1, 2, 3, 4}, 8));
+    Assert.assertNull(GdbGoroutines.computeLayout(new long[]{0x10000, 0x10000 + 5000, 0x10000, 0x10000, 0x10000}, 8));
+  }
+
+  /**
+   * Verifies that nil g pointers are dropped and structures lying close to each other are read together.
+   */
+  @Test
+  public void testGetBlocks() {
+    GdbGoroutines.Layout layout = GdbGoroutines.computeLayout(addresses(0x10000), 8);
+    Assert.assertNotNull(layout);
+
+    long[] sorted = GdbGoroutines.sortAddresses(new long[]{0x10200, 0, 0x10000, 0x900000});
+    Assert.assertArrayEquals(new long[]{0x10000, 0x10200, 0x900000}, sorted);
+
+    List<long[]> blocks = GdbGoroutines.getBlocks(sorted, layout);
+    Assert.assertEquals(2, blocks.size());
+    Assert.assertArrayEquals(new long[]{0x10000 + SP, 0x10200 + GOID + 8}, blocks.get(0));
+    Assert.assertArrayEquals(new long[]{0x900000 + SP, 0x900000 + GOID + 8}, blocks.get(1));
+  }
+
+  /**
+   * Verifies that goroutines are decoded from a block of memory, skipping idle, running and dead ones and those that lie
+   * outside of the block.
+   */
+  @Test
+  public void testDecode() {
+    GdbGoroutines.Layout layout = GdbGoroutines.computeLayout(addresses(0x10000), 8);
+    Assert.assertNotNull(layout);
+    long[] addresses = {0x10000, 0x10200, 0x10400, 0x10600};
+    long blockStart = 0x10000 + layout.start;
+    byte[] block = new byte[(int)(0x10400 + layout.start + layout.size - blockStart)];
+    // Waiting, with the _Gscan bit set
+    writeG(block, (int)(0x10000 - blockStart), 1, 0x1004, 0xc000, 0xd000);
+    writeG(block, (int)(0x10200 - blockStart), 2, 2, 0xc100, 0xd100);
+    writeG(block, (int)(0x10400 - blockStart), 7, 1, 0xc200, 0xd200);
+
+    List<GdbGoroutines.Goroutine> goroutines = new ArrayList<GdbGoroutines.Goroutine>();
+    GdbGoroutines.decode(blockStart, block, addresses, 8, layout, goroutines);
+    Assert.assertEquals(2, goroutines.size());
+    Assert.assertEquals("Goroutine 1 [waiting]", goroutines.get(0).formatName());
+    Assert.assertEquals(0xc000, goroutines.get(0).pc);
+    Assert.assertEquals(0xd000, goroutines.get(0).sp);
+    Assert.assertEquals("Goroutine 7 [runnable]", goroutines.get(1).formatName());
+    Assert.assertEquals(0xc200, goroutines.get(1).pc);
+  }
+
+  /**
+   * Returns the addresses of the layout expressions for a g at the given address.
+   */
+  private static long[] addresses(long g) {
+    return new long[]{g, g + GOID, g + STATUS, g + PC, g + SP};
+  }
+
+  private static void writeG(byte[] block, int offset, long goid, int status, long pc, long sp) {
+    writeWord(block, offset + GOID, goid, 8);
+    writeWord(block, offset + STATUS, status, 4);
+    writeWord(block, offset + PC, pc, 8);
+    writeWord(block, offset + SP, sp, 8);
+  }
+
+  private static void writeWord(byte[] block, int offset, long value, int size) {
+    for (int i = 0; i < size; i++) {
+      block[offset + i] = (byte)(value >>> 8 * i);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2015 Sergey Ignatov, Alexander Zolotov, Mihai Toader, Florin Patan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.goide.inspections.batch;
+
+import com.goide.GoCodeInsightFixtureTestCase;
+import com.goide.inspections.GoUnusedImportDeclaration;
+import com.goide.inspections.unresolved.GoUnusedGlobalVariableInspection;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.util.containers.ContainerUtil;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GoBatchInspectionRunnerTest extends GoCodeInsightFixtureTestCase {
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    setUpProjectSdk();
+  }
+
+  public void testJsonOutput() {
+    VirtualFile a = myFixture.addFileToProject("a.go", "package main\n\nimport \"fmt\"\n\nvar unused = 1\n\nfunc main() {}\n")
+      .getVirtualFile();
+    VirtualFile b = myFixture.addFileToProject("b.go", "package main\n\nvar (\n\tused = 1\n\tunusedToo = used\n)\n")
+      .getVirtualFile();
+    List<LocalInspectionTool> tools = Arrays.<LocalInspectionTool>asList(new GoUnusedImportDeclaration(),
+                                                                       new GoUnusedGlobalVariableInspection());
+    GoBatchInspectionRunner runner = new GoBatchInspectionRunner(getProject(), tools);
+    StringWriter output = new StringWriter();
+    assertTrue(runner.run(Arrays.asList(a, b), null, new GoJsonResultWriter(new PrintWriter(output))));
+
+    // Files are inspected in parallel, so only the lines of one file keep their order
+    List<String> lines = ContainerUtil.newArrayList(StringUtil.splitByLines(output.toString()));
+    Collections.sort(lines);
+    assertOrderedEquals(lines,
+                        problem("GoUnusedGlobalVariable", a, 5, "WARNING", "Unused variable 'unused'"),
+                        problem("GoUnusedGlobalVariable", b, 5, "WARNING", "Unused variable 'unusedToo'"),
+                        problem("GoUnusedImportDeclaration", a, 3, "ERROR", "Unused import"));
+  }
+
+  public void testQuote() {
+    assertEquals("\"a\\\"b\\\\c\\n\"", GoJsonResultWriter.quote("a\"b\\c\n"));
+  }
+
+  private static String problem(String inspection, VirtualFile file, int line, String severity, String message) {
+    return "{\"type\":\"problem\",\"inspection\":\"" + inspection + "\",\"file\":\"" + file.getPath() + "\",\"line\":" + line +
+           ",\"severity\":\"" + severity + "\",\"message\":\"" + message + "\"}";
+  }
+
+  @Override
+  protected LightProjectDescriptor getProjectDescriptor() {
+    return createMockProjectDescriptor();
+  }
+}
@@ -0,0 +1,24 @@
+package com.goide.lexer;
+
+import com.goide.highlighting.GoHighlightingLexer;
+import com.intellij.lexer.Lexer;
+import com.intellij.testFramework.LexerTestCase;
+
+public class GoHighlightingLexerTest extends LexerTestCase {
+  public void testNoSyntheticSemicolons() {
+    doTest("a\nb", "identifier ('a')\n" +
+                   "GO_WS_NEW_LINES ('\\n')\n" +
+                   "identifier ('b')");
+  }
+
+  public void testRestart() {
+    checkCorrectRestart("package main\n\nfunc main() {\n  a := `raw\nstring`\n  b /* c\n */ := a[0]\n  // d\n  return\n}\n");
+  }
+
+  @Override
+  protected Lexer createLexer() { return new GoHighlightingLexer(); }
+  @Override
+  protected String getDirPath() { 
+    return "../testData/lexer"; 
+  }
+}
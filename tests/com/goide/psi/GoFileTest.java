@@ -17,6 +17,8 @@
 package com.goide.psi;
 
 import com.goide.GoCodeInsightFixtureTestCase;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.util.containers.ContainerUtil;
 
 public class GoFileTest extends GoCodeInsightFixtureTestCase {
   public void testRetrieveBuildFlags() {
@@ -62,4 +64,24 @@ public class GoFileTest extends GoCodeInsightFixtureTestCase {
     myFixture.configureByText("foo.go", "package foo_test");
     assertEquals("foo_test", ((GoFile)myFixture.getFile()).getPackageName());
   }
+
+  public void testFunctionBodiesAreParsedLazily() {
+    myFixture.configureByText("a.go", "package main; func foo() { bar(); bar() }; func bar() {}");
+    GoFunctionDeclaration foo = ContainerUtil.getFirstItem(((GoFile)myFixture.getFile()).getFunctions());
+    assertNotNull(foo);
+    GoBlock block = foo.getBlock();
+    assertNotNull(block);
+    assertInstanceOf(block.getNode(), LazyParseableElement.class);
+    assertFalse(((LazyParseableElement)block.getNode()).isParsed());
+    assertSize(2, block.getStatementList());
+  }
+
+  public void testUnbalancedFunctionBodyIsParsedEagerly() {
+    myFixture.configureByText("a.go", "package main; func foo() { if true { }");
+    GoFunctionDeclaration foo = ContainerUtil.getFirstItem(((GoFile)myFixture.getFile()).getFunctions());
+    assertNotNull(foo);
+    GoBlock block = foo.getBlock();
+    assertNotNull(block);
+    assertFalse(block.getNode() instanceof LazyParseableElement);
+  }
 }